@@ -0,0 +1,153 @@
+package com.oviron.yar.benchmarks;
+
+import com.oviron.yar.HashMethod;
+import com.oviron.yar.Yar;
+import com.oviron.yar.YarCipher;
+import com.oviron.yar.YarOaepCipher;
+import com.oviron.yar.keys.YarKeyPair;
+import com.oviron.yar.keys.YarKeyPairGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encryption and decryption of a key-sized message for every key length, with RSAES-PKCS1-v1_5
+ * and with RSAES-OAEP over SHA-256, through the static {@link Yar} methods, through reused
+ * {@link YarCipher} and {@link YarOaepCipher} contexts and through reused {@link Cipher}
+ * instances of the default provider. Both sides use the same key.
+ *
+ * @author Oviron
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CipherBenchmark {
+    /**
+     * Length of an AES-256 key, the typical payload of a key wrap.
+     */
+    private static final int MESSAGE_LENGTH = 32;
+
+    private static final OAEPParameterSpec OAEP_SHA_256 = new OAEPParameterSpec("SHA-256", "MGF1",
+            MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+
+    @Param({"1024", "2048", "3072", "4096", "8192"})
+    int keyLength;
+
+    byte[] message;
+    YarKeyPair keys;
+    KeyPair jcaKeys;
+    byte[] ciphertext;
+    byte[] oaepCiphertext;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        message = new byte[MESSAGE_LENGTH];
+        new Random(keyLength).nextBytes(message);
+        keys = YarKeyPairGenerator.generateKeyPair(keyLength);
+        jcaKeys = Keys.toJca(keys);
+        ciphertext = Yar.encrypt(message, keys.getPublicKey());
+        oaepCiphertext = Yar.encryptOaep(message, keys.getPublicKey(), HashMethod.SHA_256);
+    }
+
+    /**
+     * Per thread ciphers, as both libraries require.
+     */
+    @State(Scope.Thread)
+    public static class Contexts {
+        YarCipher encryptor;
+        YarCipher decryptor;
+        YarOaepCipher oaepEncryptor;
+        YarOaepCipher oaepDecryptor;
+        Cipher jcaEncryptor;
+        Cipher jcaDecryptor;
+        Cipher jcaOaepEncryptor;
+        Cipher jcaOaepDecryptor;
+
+        @Setup
+        public void setUp(CipherBenchmark benchmark) throws GeneralSecurityException {
+            encryptor = new YarCipher(benchmark.keys.getPublicKey());
+            decryptor = new YarCipher(benchmark.keys.getPrivateKey());
+            oaepEncryptor = new YarOaepCipher(benchmark.keys.getPublicKey(), HashMethod.SHA_256);
+            oaepDecryptor = new YarOaepCipher(benchmark.keys.getPrivateKey(), HashMethod.SHA_256);
+
+            jcaEncryptor = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+            jcaEncryptor.init(Cipher.ENCRYPT_MODE, benchmark.jcaKeys.getPublic());
+            jcaDecryptor = Cipher.getInstance("RSA/ECB/PKCS1Padding");
+            jcaDecryptor.init(Cipher.DECRYPT_MODE, benchmark.jcaKeys.getPrivate());
+            jcaOaepEncryptor = Cipher.getInstance("RSA/ECB/OAEPPadding");
+            jcaOaepEncryptor.init(Cipher.ENCRYPT_MODE, benchmark.jcaKeys.getPublic(), OAEP_SHA_256);
+            jcaOaepDecryptor = Cipher.getInstance("RSA/ECB/OAEPPadding");
+            jcaOaepDecryptor.init(Cipher.DECRYPT_MODE, benchmark.jcaKeys.getPrivate(), OAEP_SHA_256);
+        }
+    }
+
+    @Benchmark
+    public byte[] yarEncrypt() {
+        return Yar.encrypt(message, keys.getPublicKey());
+    }
+
+    @Benchmark
+    public byte[] yarDecrypt() {
+        return Yar.decrypt(ciphertext, keys.getPrivateKey());
+    }
+
+    @Benchmark
+    public byte[] yarCipherEncrypt(Contexts contexts) {
+        return contexts.encryptor.encrypt(message);
+    }
+
+    @Benchmark
+    public byte[] yarCipherDecrypt(Contexts contexts) {
+        return contexts.decryptor.decrypt(ciphertext);
+    }
+
+    @Benchmark
+    public byte[] jcaEncrypt(Contexts contexts) throws GeneralSecurityException {
+        return contexts.jcaEncryptor.doFinal(message);
+    }
+
+    @Benchmark
+    public byte[] jcaDecrypt(Contexts contexts) throws GeneralSecurityException {
+        return contexts.jcaDecryptor.doFinal(ciphertext);
+    }
+
+    @Benchmark
+    public byte[] yarOaepEncrypt(Contexts contexts) {
+        return contexts.oaepEncryptor.encrypt(message);
+    }
+
+    @Benchmark
+    public byte[] yarOaepDecrypt(Contexts contexts) {
+        return contexts.oaepDecryptor.decrypt(oaepCiphertext);
+    }
+
+    @Benchmark
+    public byte[] jcaOaepEncrypt(Contexts contexts) throws GeneralSecurityException {
+        return contexts.jcaOaepEncryptor.doFinal(message);
+    }
+
+    @Benchmark
+    public byte[] jcaOaepDecrypt(Contexts contexts) throws GeneralSecurityException {
+        return contexts.jcaOaepDecryptor.doFinal(oaepCiphertext);
+    }
+}
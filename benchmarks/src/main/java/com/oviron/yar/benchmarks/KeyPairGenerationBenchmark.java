@@ -0,0 +1,57 @@
+package com.oviron.yar.benchmarks;
+
+import com.oviron.yar.keys.YarKeyPair;
+import com.oviron.yar.keys.YarKeyPairGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Key pair generation of {@link YarKeyPairGenerator} against the default provider's generator.
+ * <p/>
+ * The prime search has a large variance, the iterations are long so that each of them
+ * covers a number of key pairs even for the largest keys.
+ *
+ * @author Oviron
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class KeyPairGenerationBenchmark {
+    @Param({"1024", "2048", "3072", "4096", "8192"})
+    int keyLength;
+
+    private KeyPairGenerator generator;
+
+    @Setup
+    public void setUp() throws NoSuchAlgorithmException {
+        generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(keyLength);
+    }
+
+    @Benchmark
+    public YarKeyPair yar() {
+        return YarKeyPairGenerator.generateKeyPair(keyLength);
+    }
+
+    @Benchmark
+    public KeyPair jca() {
+        return generator.generateKeyPair();
+    }
+}
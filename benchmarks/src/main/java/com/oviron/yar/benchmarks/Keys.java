@@ -0,0 +1,36 @@
+package com.oviron.yar.benchmarks;
+
+import com.oviron.yar.keys.YarKeyFormats;
+import com.oviron.yar.keys.YarKeyPair;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+/**
+ * Key material shared by the YAR benchmarks and their JCA baselines.
+ *
+ * @author Oviron
+ */
+final class Keys {
+    private Keys() {
+    }
+
+    /**
+     * Converts a YAR key pair into provider keys, so that both sides of a comparison use the same key.
+     *
+     * @param keys YAR key pair
+     * @return the same keys created by the default RSA key factory
+     * @throws GeneralSecurityException if the key factory rejects the keys
+     */
+    static KeyPair toJca(YarKeyPair keys) throws GeneralSecurityException {
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+        return new KeyPair(
+                factory.generatePublic(new X509EncodedKeySpec(YarKeyFormats.encodeX509(keys.getPublicKey()))),
+                factory.generatePrivate(new PKCS8EncodedKeySpec(
+                        YarKeyFormats.encodePkcs8((RSAPrivateCrtKey) keys.getPrivateKey()))));
+    }
+}
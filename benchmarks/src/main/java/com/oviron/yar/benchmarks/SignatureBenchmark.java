@@ -0,0 +1,118 @@
+package com.oviron.yar.benchmarks;
+
+import com.oviron.yar.HashMethod;
+import com.oviron.yar.Yar;
+import com.oviron.yar.YarSigner;
+import com.oviron.yar.YarVerifier;
+import com.oviron.yar.keys.YarKeyPair;
+import com.oviron.yar.keys.YarKeyPairGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RSASSA-PKCS1-v1_5 signature generation and verification for every key length and hash method,
+ * through the static {@link Yar} methods, through reused {@link YarSigner} and {@link YarVerifier}
+ * contexts and through reused {@link Signature} instances of the default provider.
+ * Both sides use the same key.
+ *
+ * @author Oviron
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SignatureBenchmark {
+    private static final int MESSAGE_LENGTH = 1024;
+
+    @Param({"1024", "2048", "3072", "4096", "8192"})
+    int keyLength;
+
+    @Param({"MD2", "MD5", "SHA_1", "SHA_256", "SHA_384", "SHA_512"})
+    HashMethod hashMethod;
+
+    byte[] message;
+    YarKeyPair keys;
+    KeyPair jcaKeys;
+    byte[] signature;
+
+    @Setup
+    public void setUp() throws GeneralSecurityException {
+        message = new byte[MESSAGE_LENGTH];
+        new Random(keyLength).nextBytes(message);
+        keys = YarKeyPairGenerator.generateKeyPair(keyLength);
+        jcaKeys = Keys.toJca(keys);
+        signature = Yar.sign(message, keys.getPrivateKey(), hashMethod);
+    }
+
+    /**
+     * Per thread signature contexts, as both libraries require.
+     */
+    @State(Scope.Thread)
+    public static class Contexts {
+        YarSigner signer;
+        YarVerifier verifier;
+        Signature jcaSigner;
+        Signature jcaVerifier;
+
+        @Setup
+        public void setUp(SignatureBenchmark benchmark) throws GeneralSecurityException {
+            signer = new YarSigner(benchmark.keys.getPrivateKey(), benchmark.hashMethod);
+            verifier = new YarVerifier(benchmark.keys.getPublicKey(), benchmark.hashMethod);
+
+            String algorithm = benchmark.hashMethod.name().replace("_", "") + "withRSA";
+            jcaSigner = Signature.getInstance(algorithm);
+            jcaSigner.initSign(benchmark.jcaKeys.getPrivate());
+            jcaVerifier = Signature.getInstance(algorithm);
+            jcaVerifier.initVerify(benchmark.jcaKeys.getPublic());
+        }
+    }
+
+    @Benchmark
+    public byte[] yarSign() {
+        return Yar.sign(message, keys.getPrivateKey(), hashMethod);
+    }
+
+    @Benchmark
+    public boolean yarVerify() {
+        return Yar.verify(message, signature, keys.getPublicKey(), hashMethod);
+    }
+
+    @Benchmark
+    public byte[] yarSignerSign(Contexts contexts) {
+        return contexts.signer.sign(message);
+    }
+
+    @Benchmark
+    public boolean yarVerifierVerify(Contexts contexts) {
+        return contexts.verifier.verify(message, signature);
+    }
+
+    @Benchmark
+    public byte[] jcaSign(Contexts contexts) throws GeneralSecurityException {
+        contexts.jcaSigner.update(message);
+        return contexts.jcaSigner.sign();
+    }
+
+    @Benchmark
+    public boolean jcaVerify(Contexts contexts) throws GeneralSecurityException {
+        contexts.jcaVerifier.update(message);
+        return contexts.jcaVerifier.verify(signature);
+    }
+}
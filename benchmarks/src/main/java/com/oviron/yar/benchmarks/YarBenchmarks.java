@@ -0,0 +1,39 @@
+package com.oviron.yar.benchmarks;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/**
+ * Runs the benchmarks once on a single thread and once on a thread per processor, with the GC
+ * profiler reporting the allocation rate, and writes the results of each run as JSON.
+ * <p/>
+ * Usage: {@code java -jar benchmarks.jar [benchmark regexp [result directory]]}, the results go to
+ * yar-1t.json and yar-&lt;processors&gt;t.json. The usual JMH command line remains available
+ * with {@code java -cp benchmarks.jar org.openjdk.jmh.Main}.
+ *
+ * @author Oviron
+ */
+public class YarBenchmarks {
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : YarBenchmarks.class.getPackage().getName() + ".*";
+        File directory = new File(args.length > 1 ? args[1] : ".");
+
+        int processors = Runtime.getRuntime().availableProcessors();
+        for (int threads : processors > 1 ? new int[]{1, processors} : new int[]{1}) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(threads)
+                    .addProfiler(GCProfiler.class)
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(directory, "yar-" + threads + "t.json").getPath())
+                    .build();
+            new Runner(options).run();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.oviron.yar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+
+/**
+ * Feeds message digests from streams, channels and files with a fixed amount of memory.
+ *
+ * @author Oviron
+ */
+class Digests {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Length of the file regions mapped at once.
+     */
+    private static final long MAP_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Hashes the stream until its end.
+     *
+     * @param md message digest to update
+     * @param in stream to hash, it is not closed
+     * @throws IOException if reading the stream fails
+     */
+    static void update(MessageDigest md, InputStream in) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = in.read(buffer)) != -1)
+            md.update(buffer, 0, read);
+    }
+
+    /**
+     * Hashes the channel until its end.
+     *
+     * @param md      message digest to update
+     * @param channel channel to hash, it is not closed
+     * @throws IOException if reading the channel fails
+     */
+    static void update(MessageDigest md, ReadableByteChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        while (channel.read(buffer) != -1) {
+            buffer.flip();
+            md.update(buffer);
+            buffer.clear();
+        }
+    }
+
+    /**
+     * Hashes the file, mapping it into memory one region at a time.
+     *
+     * @param md   message digest to update
+     * @param path file to hash
+     * @throws IOException if reading the file fails
+     */
+    static void update(MessageDigest md, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long position = 0; position < size; position += MAP_SIZE)
+                md.update(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAP_SIZE, size - position)));
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.oviron.yar;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAKey;
+import java.util.Arrays;
+
+/**
+ * Set of encoding helpers shared by the RSA signature and encryption schemes.
+ * <p/>
+ * The encoding methods used here are described in
+ * PKCS #1 v2.1: RSA Cryptography Standard
+ * ftp://ftp.rsasecurity.com/pub/pkcs/pkcs-1/pkcs-1v2-1.pdf
+ *
+ * @author Oviron
+ */
+class Encodings {
+    /**
+     * Length in octets of the RSA modulus n.
+     *
+     * @param key RSA key
+     * @return k, the length in octets of the modulus
+     */
+    static int modulusLength(RSAKey key) {
+        return (key.getModulus().bitLength() + 7) / 8;
+    }
+
+    /**
+     * Creates a message digest for the given hash method.
+     *
+     * @param hashMethod hash function
+     * @return new message digest instance
+     */
+    static MessageDigest digest(HashMethod hashMethod) {
+        try {
+            return MessageDigest.getInstance(hashMethod.name);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalArgumentException("No such algorithm. Try to use another hash method.");
+        }
+    }
+
+    /**
+     * Completes the hash computation and writes the hash value to the end of the buffer.
+     *
+     * @param md     message digest holding the hashed message
+     * @param buffer destination buffer, the hash value occupies its last md.getDigestLength() octets
+     */
+    static void digestInto(MessageDigest md, byte[] buffer) {
+        int hLen = md.getDigestLength();
+        try {
+            md.digest(buffer, buffer.length - hLen, hLen);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Checks that a hash value computed elsewhere has the length of the hash function output.
+     *
+     * @param hash hash value
+     * @param md   message digest of the expected hash function
+     */
+    static void checkHashLength(byte[] hash, MessageDigest md) {
+        if (hash.length != md.getDigestLength())
+            throw new IllegalArgumentException("Hash length " + hash.length + " does not match "
+                    + md.getAlgorithm() + " output length " + md.getDigestLength() + ".");
+    }
+
+    /**
+     * EMSA-PKCS1-v1_5-ENCODE implementation, without the hash value.
+     * Everything of EM but the trailing hLen octets of H depends only on emLen and
+     * the hash function, so it is built once and the hash value is written in place later.
+     *
+     * @param emLen      intended length in octets of the encoded message, at least tLen +
+     *                   11, where tLen is the octet length of the DER encoding T of a
+     *                   certain value computed during the encoding operation
+     * @param hashMethod hash function
+     * @param hLen       length in octets of the hash function output
+     * @return encoded message template, an octet sequence of length emLen
+     */
+    static byte[] EMSATemplate(int emLen, HashMethod hashMethod, int hLen) {
+        //2. Encode the algorithm ID for the hash function and the hash value into an ASN.1
+        //value of type DigestInfo with the Distinguished Encoding Rules (DER),
+        //where the type DigestInfo has the syntax
+        //
+        //DigestInfo ::= SEQUENCE {
+        //    digestAlgorithm AlgorithmIdentifier,
+        //    digest OCTET STRING
+        //}
+        //
+        //The first field identifies the hash function and the second contains the hash value.
+        //Let T be the DER encoding of the DigestInfo value (see the notes below) and let
+        //tLen be the length in octets of T.
+        int tLen = hashMethod.prefix.length + hLen;
+
+        //3. If emLen < (tLen + 11), output “intended encoded message length too short” and stop.
+        if (emLen < tLen + 11)
+            throw new IllegalArgumentException("Intended encoded message length too short");
+
+        //5. Concatenate PS, the DER encoding T, and other padding to form the encoded
+        //message EM as
+        //        EM = 0x00 || 0x01 || PS || 0x00 || T
+        byte[] EM = new byte[emLen];
+        EM[1] = 0x01;
+
+        //4. Generate an octet string PS consisting of (emLen – tLen – 3) octets with
+        //hexadecimal value 0xff. The length of PS will be at least 8 octets.
+        Arrays.fill(EM, 2, emLen - tLen - 1, (byte) 0xff);
+
+        System.arraycopy(hashMethod.prefix, 0, EM, emLen - tLen, hashMethod.prefix.length);
+
+        return EM;
+    }
+}
@@ -0,0 +1,79 @@
+package com.oviron.yar;
+
+import javax.crypto.Mac;
+import javax.crypto.ShortBufferException;
+import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.interfaces.RSAPrivateKey;
+
+/**
+ * Synthetic messages returned instead of an error when the padding of a decrypted message is invalid.
+ * <p/>
+ * The synthetic message is a pseudorandom function of the ciphertext keyed with a secret derived
+ * from the private key, HMAC-SHA256 in counter mode, so the same ciphertext always decrypts to the
+ * same message and the caller cannot tell an invalid padding from a valid one. It is computed for
+ * every ciphertext, valid or not, so the decryption time does not tell them apart either.
+ * <p/>
+ * The idea follows the implicit rejection of the IETF draft "Implicit Rejection for RSAES-PKCS1-v1_5"
+ * (draft-kario-rsa-guidance), with a simpler derivation of the key and of the message length.
+ *
+ * @author Oviron
+ */
+class ImplicitRejection {
+    private static final int BLOCK = 32;
+
+    private final Mac mac;
+    private final int k;
+    private final byte[] synthetic;
+    private final byte[] counter = new byte[4];
+
+    /**
+     * @param privateKey private key the rejection secret is derived from
+     * @param k          length in octets of the modulus
+     */
+    ImplicitRejection(RSAPrivateKey privateKey, int k) {
+        this.k = k;
+        //The synthetic message of length k followed by two octets selecting its length.
+        this.synthetic = new byte[(k + 2 + BLOCK - 1) / BLOCK * BLOCK];
+
+        MessageDigest md = Encodings.digest(HashMethod.SHA_256);
+        md.update("YAR implicit rejection".getBytes());
+        byte[] secret = md.digest(privateKey.getPrivateExponent().toByteArray());
+        try {
+            this.mac = Mac.getInstance("HmacSHA256");
+            this.mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Computes the synthetic message of the ciphertext.
+     *
+     * @param ciphertext array containing the ciphertext
+     * @param offset     offset of the ciphertext, which is k octets long
+     * @return length of the synthetic message, at most k – 11
+     */
+    int generate(byte[] ciphertext, int offset) {
+        try {
+            for (int i = 0; i < synthetic.length / BLOCK; i++) {
+                counter[3] = (byte) i;
+                counter[2] = (byte) (i >>> 8);
+                mac.update(counter);
+                mac.update(ciphertext, offset, k);
+                mac.doFinal(synthetic, i * BLOCK);
+            }
+        } catch (ShortBufferException e) {
+            throw new IllegalStateException(e);
+        }
+        return ((synthetic[k] & 0xff) << 8 | synthetic[k + 1] & 0xff) % (k - 10);
+    }
+
+    /**
+     * @return synthetic message, the message of length mLen takes its last mLen octets of the first k
+     */
+    byte[] message() {
+        return synthetic;
+    }
+}
@@ -0,0 +1,51 @@
+package com.oviron.yar;
+
+import java.security.interfaces.RSAKey;
+
+/**
+ * Holder of the installed {@link YarMetrics} and the timing helpers of the contexts.
+ * <p/>
+ * A context calls {@link #start()} before an operation and {@link #record} with {@link #stop(long)} after it.
+ * While nothing is installed, start() only reads a volatile field and the rest does nothing.
+ *
+ * @author Oviron
+ */
+class Metrics {
+    private static final long DISABLED = Long.MIN_VALUE;
+
+    private static volatile YarMetrics metrics = YarMetrics.NONE;
+
+    static void set(YarMetrics m) {
+        metrics = m == null ? YarMetrics.NONE : m;
+    }
+
+    static YarMetrics get() {
+        return metrics;
+    }
+
+    /**
+     * @return start time of an operation, or a marker if no metrics are installed
+     */
+    static long start() {
+        return metrics == YarMetrics.NONE ? DISABLED : System.nanoTime();
+    }
+
+    /**
+     * @param start start time returned by {@link #start()}
+     * @return latency of the operation, or -1 if no metrics were installed at its start
+     */
+    static long stop(long start) {
+        return start == DISABLED ? -1 : Math.max(0, System.nanoTime() - start);
+    }
+
+    /**
+     * Records an operation with the installed metrics.
+     *
+     * @param nanos latency returned by {@link #stop(long)}, the operation is not recorded if it is -1
+     */
+    static void record(YarMetrics.Operation operation, RSAKey key, HashMethod hashMethod, long nanos,
+                       boolean success) {
+        if (nanos >= 0)
+            metrics.record(operation, key.getModulus().bitLength(), hashMethod, nanos, success);
+    }
+}
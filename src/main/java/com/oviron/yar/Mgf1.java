@@ -0,0 +1,68 @@
+package com.oviron.yar;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+
+/**
+ * MGF1 mask generation function of PKCS #1 v2.1 appendix B.2.1, bound to one message digest.
+ * <p/>
+ * The mask is not output as an octet string, it is XORed into the buffer block by block, which
+ * is all OAEP and PSS do with it. The digest, the counter and the block buffer are reused.
+ * Instances are not thread-safe.
+ *
+ * @author Oviron
+ */
+class Mgf1 {
+    private final MessageDigest md;
+    private final int hLen;
+    private final byte[] C = new byte[4];
+    private final byte[] block;
+
+    /**
+     * @param md message digest of the underlying hash function Hash, used by this instance only
+     */
+    Mgf1(MessageDigest md) {
+        this.md = md;
+        this.hLen = md.getDigestLength();
+        this.block = new byte[hLen];
+    }
+
+    /**
+     * XORs the mask generated from the seed into a part of the buffer. The seed and the part must not overlap.
+     *
+     * @param seed       array containing the seed from which the mask is generated
+     * @param seedOffset offset of the seed
+     * @param seedLength length of the seed
+     * @param buffer     array containing the octets to be masked
+     * @param offset     offset of the octets to be masked
+     * @param maskLen    intended length in octets of the mask
+     */
+    void mask(byte[] seed, int seedOffset, int seedLength, byte[] buffer, int offset, int maskLen) {
+        //3. For counter from 0 to [maskLen / hLen] – 1, do the following:
+        int done = 0;
+        for (int counter = 0; done < maskLen; counter++) {
+            //a. Convert counter to an octet string C of length 4 octets:
+            //        C = I2OSP (counter, 4)
+            C[0] = (byte) (counter >>> 24);
+            C[1] = (byte) (counter >>> 16);
+            C[2] = (byte) (counter >>> 8);
+            C[3] = (byte) counter;
+
+            //b. Concatenate the hash of the seed mgfSeed and C to the octet string T:
+            //        T = T || Hash(mgfSeed || C)
+            md.update(seed, seedOffset, seedLength);
+            md.update(C);
+            try {
+                md.digest(block, 0, hLen);
+            } catch (DigestException e) {
+                throw new IllegalStateException(e);
+            }
+
+            //4. Output the leading maskLen octets of T as the octet string mask.
+            int count = Math.min(hLen, maskLen - done);
+            for (int i = 0; i < count; i++)
+                buffer[offset + done + i] ^= block[i];
+            done += count;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.oviron.yar;
+
+/**
+ * Source of the pseudorandomly generated nonzero octets of the EME-PKCS1-v1_5 padding string PS.
+ * <p/>
+ * The default source is a {@link SecurePaddingSource}. Another one may be set for all
+ * new ciphers with {@link Yar#setPaddingSource} or passed to a single {@link YarCipher},
+ * for example a deterministic source making ciphertexts reproducible in tests.
+ * Implementations must be thread-safe.
+ *
+ * @author Oviron
+ */
+public interface PaddingSource {
+    /**
+     * Fills a part of the buffer with pseudorandomly generated nonzero octets.
+     *
+     * @param buffer destination buffer
+     * @param offset index of the first octet to fill
+     * @param length number of octets to fill
+     */
+    void nextNonZeroBytes(byte[] buffer, int offset, int length);
+}
@@ -0,0 +1,41 @@
+package com.oviron.yar;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Thread pools shared by the library.
+ *
+ * @author Oviron
+ */
+class Pools {
+    private static ForkJoinPool defaultPool;
+    private static ExecutorService backgroundExecutor;
+
+    /**
+     * @return shared pool with one thread per processor, created on first use
+     */
+    static synchronized ForkJoinPool defaultPool() {
+        if (defaultPool == null)
+            defaultPool = new ForkJoinPool();
+        return defaultPool;
+    }
+
+    /**
+     * @return shared single daemon thread for background work off the calling threads, created on first use
+     */
+    static synchronized ExecutorService backgroundExecutor() {
+        if (backgroundExecutor == null)
+            backgroundExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "yar-background");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        return backgroundExecutor;
+    }
+}
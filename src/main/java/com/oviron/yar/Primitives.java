@@ -1,9 +1,9 @@
 package com.oviron.yar;
 
 import java.math.BigInteger;
-import java.security.interfaces.RSAPrivateCrtKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
 
 /**
  * Set of cryptographic and data conversion primitives,
@@ -24,15 +24,7 @@ class Primitives {
      * @return ciphertext representative, an integer between 0 and (modulus – 1)
      */
     public static BigInteger RSAEP(RSAPublicKey publicKey, BigInteger m) {
-        //1. If the message representative m is not between 0 and n – 1, output
-        // “message representative out of range” and stop.
-        if (m.compareTo(BigInteger.ZERO) < 0 || m.compareTo(publicKey.getModulus().subtract(BigInteger.ONE)) > 0) {
-            throw new IllegalArgumentException("Message representative out of range");
-        }
-
-        //2. Let c = me mod n.
-        //3. Output c.
-        return m.modPow(publicKey.getPublicExponent(), publicKey.getModulus());
+        return new PublicKeyEngine(publicKey).RSAEP(m);
     }
 
     /**
@@ -43,28 +35,7 @@ class Primitives {
      * @return message representative, an integer between 0 and (modulus – 1)
      */
     public static BigInteger RSADP(RSAPrivateKey privateKey, BigInteger c) {
-        //1. If the ciphertext representative c is not between 0 and n – 1, output
-        // “ciphertext representative out of range” and stop.
-        if (c.compareTo(BigInteger.ZERO) < 0 || c.compareTo(privateKey.getModulus().subtract(BigInteger.ONE)) > 0) {
-            throw new IllegalArgumentException("Ciphertext representative out of range");
-        }
-
-        //a. If the second form (p, q, dP, dQ, qInv) and (ri, di, ti) of K is used, proceed as follows:
-        if (privateKey instanceof RSAPrivateCrtKey) {
-            RSAPrivateCrtKey pk = (RSAPrivateCrtKey) privateKey;
-            //Let m1 = c^dP mod p and m2 = c^dQ mod q.
-            BigInteger m1 = c.modPow(pk.getPrimeExponentP(), pk.getPrimeP());
-            BigInteger m2 = c.modPow(pk.getPrimeExponentQ(), pk.getPrimeQ());
-            //Let h = (m1 – m2) · qInv mod p.
-            BigInteger h = m1.subtract(m2).multiply(pk.getCrtCoefficient()).mod(pk.getPrimeP());
-            //Let m = m2 + q · h.
-            //Output m.
-            return m2.add(h.multiply(pk.getPrimeQ()));
-        }
-
-        //b. If the first form (n, d) of K is used, let m = c^d mod n.
-        //Output m.
-        return c.modPow(privateKey.getPrivateExponent(), privateKey.getModulus());
+        return new PrivateKeyEngine(privateKey).RSADP(c);
     }
 
     /**
@@ -102,22 +73,33 @@ class Primitives {
      * @return corresponding octet sequence of length k
      */
     public static byte[] I2OSP(BigInteger s, int k) {
-        byte[] result = s.toByteArray();
+        byte[] result = new byte[k];
+        I2OSP(s, k, result, 0);
+        return result;
+    }
+
+    /**
+     * Integer to Octet Sequence conversion primitive writing into a buffer.
+     * Converts a nonnegative integer to an octet sequence of a specified length.
+     *
+     * @param s      nonnegative integer to be converted
+     * @param k      intended length of the resulting octet string
+     * @param output buffer receiving the corresponding octet sequence of length k
+     * @param offset offset of the octet sequence in the buffer
+     */
+    public static void I2OSP(BigInteger s, int k, byte[] output, int offset) {
+        byte[] bytes = s.toByteArray();
+        int excess = bytes.length - k;
 
-        if (result.length < k) {
-            byte[] b = new byte[k];
-            System.arraycopy(result, 0, b, k - result.length, result.length);
-            result = b;
-        } else if (result.length > k) {
-            for (int i = 0; i < result.length - k; i++)
-                if (result[i] != 0x00)
+        if (excess > 0) {
+            for (int i = 0; i < excess; i++)
+                if (bytes[i] != 0x00)
                     throw new IllegalArgumentException("Integer too large");
-            byte[] b = new byte[k];
-            System.arraycopy(result, result.length - k, b, 0, k);
-            result = b;
+            System.arraycopy(bytes, excess, output, offset, k);
+        } else {
+            Arrays.fill(output, offset, offset - excess, (byte) 0x00);
+            System.arraycopy(bytes, 0, output, offset - excess, bytes.length);
         }
-
-        return result;
     }
 
     /**
@@ -130,4 +112,21 @@ class Primitives {
     public static BigInteger OS2IP(byte[] s) {
         return new BigInteger(1, s);
     }
+
+    /**
+     * Octet Sequence to Integer conversion primitive reading a part of a buffer.
+     * Converts an octet sequence to a nonnegative integer.
+     * <p/>
+     * BigInteger of Java 7 can only be built from a whole array, so a part of an array is copied.
+     *
+     * @param s      buffer containing the octet sequence to be converted
+     * @param offset offset of the octet sequence in the buffer
+     * @param length length of the octet sequence
+     * @return corresponding nonnegative integer
+     */
+    public static BigInteger OS2IP(byte[] s, int offset, int length) {
+        if (offset == 0 && length == s.length)
+            return new BigInteger(1, s);
+        return new BigInteger(1, Arrays.copyOfRange(s, offset, offset + length));
+    }
 }
\ No newline at end of file
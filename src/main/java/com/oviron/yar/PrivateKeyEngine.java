@@ -0,0 +1,260 @@
+package com.oviron.yar;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * RSA decryption primitive bound to one private key.
+ * <p/>
+ * The key components are read once, so repeated RSADP/RSASP1 calls with the same key
+ * only perform the exponentiations. For keys in the CRT form (p, q, dP, dQ, qInv) the two
+ * half-size exponentiations are used, otherwise the plain c^d mod n.
+ * <p/>
+ * The exponentiations themselves are left to {@link BigInteger#modPow}, which already runs
+ * a fixed-window Montgomery ladder for odd moduli and is backed by JVM intrinsics for the
+ * Montgomery multiplication.
+ * <p/>
+ * When parallel CRT is enabled (see {@link Yar#enableParallelCrt}) and the key is large enough,
+ * c^dQ mod q is computed on the executor while the calling thread computes c^dP mod p.
+ * <p/>
+ * Unless disabled (see {@link Yar#disableBlinding}), the exponentiation is blinded for keys
+ * with a known public exponent e: it runs on c · r^e mod n, and the result is multiplied by
+ * r^(–1) mod n, so its timing does not depend on c. The factors r^e and r^(–1) are computed
+ * once per key and thread, kept in a small per-thread table shared by all engines of the thread,
+ * and squared after every use, which yields the factors of r^2, r^4, ... at the cost of two
+ * multiplications. The static methods creating an engine per call thus reuse them as well.
+ *
+ * @author Oviron
+ */
+class PrivateKeyEngine {
+    private static volatile ParallelCrt parallelCrt;
+    private static volatile boolean blinding = true;
+    private static final SecureRandom random = new SecureRandom();
+    private static final int MAX_BLINDINGS = 16;
+    private static final ThreadLocal<Map<BigInteger, Blinding>> blindings = new ThreadLocal<Map<BigInteger, Blinding>>() {
+        @Override
+        protected Map<BigInteger, Blinding> initialValue() {
+            return new LinkedHashMap<BigInteger, Blinding>(MAX_BLINDINGS, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<BigInteger, Blinding> eldest) {
+                    return size() > MAX_BLINDINGS;
+                }
+            };
+        }
+    };
+
+    private final BigInteger n;
+    private final BigInteger e;
+    private final BigInteger d;
+    private final BigInteger p;
+    private final BigInteger q;
+    private final BigInteger dP;
+    private final BigInteger dQ;
+    private final BigInteger qInv;
+    private final Executor executor;
+
+    PrivateKeyEngine(RSAPrivateKey privateKey) {
+        this.n = privateKey.getModulus();
+        this.d = privateKey.getPrivateExponent();
+
+        if (privateKey instanceof RSAPrivateCrtKey) {
+            RSAPrivateCrtKey pk = (RSAPrivateCrtKey) privateKey;
+            this.e = blinding ? pk.getPublicExponent() : null;
+            this.p = pk.getPrimeP();
+            this.q = pk.getPrimeQ();
+            this.dP = pk.getPrimeExponentP();
+            this.dQ = pk.getPrimeExponentQ();
+            this.qInv = pk.getCrtCoefficient();
+
+            ParallelCrt settings = parallelCrt;
+            this.executor = settings != null && n.bitLength() >= settings.minKeyLength ? settings.executor : null;
+        } else {
+            //The public exponent is unknown, the key cannot be blinded.
+            this.e = null;
+            this.p = null;
+            this.q = null;
+            this.dP = null;
+            this.dQ = null;
+            this.qInv = null;
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @param executor     executor running the second CRT half, null to disable parallel CRT
+     * @param minKeyLength smallest modulus length in bits to run the halves concurrently for
+     */
+    static void setParallelCrt(Executor executor, int minKeyLength) {
+        parallelCrt = executor == null ? null : new ParallelCrt(executor, minKeyLength);
+    }
+
+    /**
+     * @param enabled whether engines created afterwards blind the exponentiation
+     */
+    static void setBlinding(boolean enabled) {
+        blinding = enabled;
+    }
+
+    /**
+     * RSA Decryption primitive.
+     *
+     * @param c ciphertext representative, an integer between 0 and (modulus – 1)
+     * @return message representative, an integer between 0 and (modulus – 1)
+     */
+    BigInteger RSADP(BigInteger c) {
+        //1. If the ciphertext representative c is not between 0 and n – 1, output
+        // “ciphertext representative out of range” and stop.
+        //c <= n – 1 is checked as c < n, so no n – 1 has to be computed.
+        if (c.signum() < 0 || c.compareTo(n) >= 0) {
+            throw new IllegalArgumentException("Ciphertext representative out of range");
+        }
+
+        if (e == null)
+            return exponentiate(c);
+
+        Map<BigInteger, Blinding> table = blindings.get();
+        Blinding state = table.get(n);
+        if (state == null || !state.e.equals(e)) {
+            state = new Blinding(n, e);
+            table.put(n, state);
+        }
+        return state.unblind(exponentiate(state.blind(c)));
+    }
+
+    /**
+     * c^d mod n, through the CRT if possible.
+     */
+    private BigInteger exponentiate(BigInteger c) {
+        //a. If the second form (p, q, dP, dQ, qInv) and (ri, di, ti) of K is used, proceed as follows:
+        if (p != null) {
+            //Let m1 = c^dP mod p and m2 = c^dQ mod q.
+            BigInteger m1;
+            BigInteger m2;
+            if (executor != null) {
+                FutureTask<BigInteger> half = modPowTask(c, dQ, q);
+                try {
+                    executor.execute(half);
+                } catch (RejectedExecutionException ex) {
+                    //Run both halves on the calling thread.
+                }
+                m1 = c.modPow(dP, p);
+                m2 = join(half);
+            } else {
+                m1 = c.modPow(dP, p);
+                m2 = c.modPow(dQ, q);
+            }
+            //Let h = (m1 – m2) · qInv mod p.
+            BigInteger h = m1.subtract(m2).multiply(qInv).mod(p);
+            //Let m = m2 + q · h.
+            //Output m.
+            return m2.add(h.multiply(q));
+        }
+
+        //b. If the first form (n, d) of K is used, let m = c^d mod n.
+        //Output m.
+        return c.modPow(d, n);
+    }
+
+    private static FutureTask<BigInteger> modPowTask(final BigInteger base, final BigInteger exponent,
+                                                     final BigInteger modulus) {
+        return new FutureTask<>(new Callable<BigInteger>() {
+            @Override
+            public BigInteger call() {
+                return base.modPow(exponent, modulus);
+            }
+        });
+    }
+
+    /**
+     * Waits for the task. A task the executor has not started yet is run on the calling
+     * thread, so a busy or saturated executor never makes the caller wait idle.
+     */
+    private static BigInteger join(FutureTask<BigInteger> task) {
+        task.run();
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) ex.getCause();
+                    if (ex.getCause() instanceof Error)
+                        throw (Error) ex.getCause();
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class ParallelCrt {
+        final Executor executor;
+        final int minKeyLength;
+
+        ParallelCrt(Executor executor, int minKeyLength) {
+            this.executor = executor;
+            this.minKeyLength = minKeyLength;
+        }
+    }
+
+    /**
+     * Blinding factors of one key, used by a single thread.
+     */
+    private static class Blinding {
+        final BigInteger n;
+        final BigInteger e;
+        BigInteger blind;
+        BigInteger unblind;
+
+        Blinding(BigInteger n, BigInteger e) {
+            this.n = n;
+            this.e = e;
+            while (true) {
+                BigInteger r = new BigInteger(n.bitLength(), random).mod(n);
+                try {
+                    unblind = r.modInverse(n);
+                    blind = r.modPow(e, n);
+                    return;
+                } catch (ArithmeticException ex) {
+                    //r is 0 or shares a factor with n, draw another one.
+                }
+            }
+        }
+
+        /**
+         * @return c · r^e mod n
+         */
+        BigInteger blind(BigInteger c) {
+            return c.multiply(blind).mod(n);
+        }
+
+        /**
+         * Removes the blinding and squares the factors for the next use.
+         *
+         * @return m · r^(–1) mod n
+         */
+        BigInteger unblind(BigInteger m) {
+            m = m.multiply(unblind).mod(n);
+
+            //(r^2)^e = (r^e)^2 and (r^2)^(–1) = (r^(–1))^2.
+            blind = blind.multiply(blind).mod(n);
+            unblind = unblind.multiply(unblind).mod(n);
+            return m;
+        }
+    }
+}
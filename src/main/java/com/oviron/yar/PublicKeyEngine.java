@@ -0,0 +1,86 @@
+package com.oviron.yar;
+
+import java.math.BigInteger;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * RSA encryption primitive bound to one public key.
+ * <p/>
+ * Exponents that need only a handful of modular multiplications (e = 3, 5, 7, ...) are
+ * applied with a plain square-and-multiply chain and Barrett reduction, using the
+ * reduction constant precomputed for the modulus. Such a chain skips the conversions
+ * into and out of the Montgomery form that dominate {@link BigInteger#modPow} for tiny
+ * exponents. Larger exponents, including the usual e = 65537, go to modPow, which
+ * performs the same square-and-multiply chain with intrinsic Montgomery multiplication
+ * and is faster than any BigInteger based reduction there.
+ *
+ * @author Oviron
+ */
+class PublicKeyEngine {
+    /**
+     * Largest number of modular multiplications for which the reduction chain is used.
+     */
+    private static final int MAX_CHAIN_MULTIPLICATIONS = 4;
+
+    private final BigInteger n;
+    private final BigInteger e;
+    private final int nBits;
+    private final BigInteger mu;
+
+    PublicKeyEngine(RSAPublicKey publicKey) {
+        this.n = publicKey.getModulus();
+        this.e = publicKey.getPublicExponent();
+        this.nBits = n.bitLength();
+
+        //Squarings for every bit but the leading one and a multiplication for every set bit but the leading one.
+        int multiplications = e.bitLength() + e.bitCount() - 2;
+        if (e.signum() > 0 && multiplications <= MAX_CHAIN_MULTIPLICATIONS) {
+            //Barrett reduction constant mu = floor(2^(2 * nBits) / n).
+            this.mu = BigInteger.ONE.shiftLeft(2 * nBits).divide(n);
+        } else {
+            this.mu = null;
+        }
+    }
+
+    /**
+     * RSA Encryption primitive.
+     *
+     * @param m message representative, an integer between 0 and (modulus – 1)
+     * @return ciphertext representative, an integer between 0 and (modulus – 1)
+     */
+    BigInteger RSAEP(BigInteger m) {
+        //1. If the message representative m is not between 0 and n – 1, output
+        // “message representative out of range” and stop.
+        //m <= n – 1 is checked as m < n, so no n – 1 has to be computed.
+        if (m.signum() < 0 || m.compareTo(n) >= 0) {
+            throw new IllegalArgumentException("Message representative out of range");
+        }
+
+        //2. Let c = me mod n.
+        //3. Output c.
+        if (mu == null)
+            return m.modPow(e, n);
+
+        BigInteger c = m;
+        for (int i = e.bitLength() - 2; i >= 0; i--) {
+            c = reduce(c.multiply(c));
+            if (e.testBit(i))
+                c = reduce(c.multiply(m));
+        }
+        return c;
+    }
+
+    /**
+     * Barrett reduction.
+     *
+     * @param x an integer between 0 and (modulus – 1)^2
+     * @return x mod n
+     */
+    private BigInteger reduce(BigInteger x) {
+        BigInteger q = x.shiftRight(nBits - 1).multiply(mu).shiftRight(nBits + 1);
+        BigInteger r = x.subtract(q.multiply(n));
+        while (r.compareTo(n) >= 0)
+            r = r.subtract(n);
+        return r;
+    }
+}
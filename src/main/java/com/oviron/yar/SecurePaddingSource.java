@@ -0,0 +1,141 @@
+package com.oviron.yar;
+
+import java.security.SecureRandom;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Padding source drawing nonzero octets from {@link SecureRandom} in bulk.
+ * <p/>
+ * Every thread takes octets from its own pool of nonzero octets, so threads never contend for it.
+ * A pool consists of two blocks: the calling thread copies octets out of the current one while
+ * the spare one is filled on the background executor. When the current block runs out the spare
+ * one takes its place and the spent one is sent for refilling. Only when the background refill
+ * falls behind does the calling thread fill a block itself.
+ *
+ * @author Oviron
+ */
+public class SecurePaddingSource implements PaddingSource {
+    private static final int DEFAULT_BLOCK_SIZE = 4096;
+
+    private final SecureRandom random;
+    private final int blockSize;
+    private final Executor refiller;
+    private final ThreadLocal<Pool> pools = new ThreadLocal<Pool>() {
+        @Override
+        protected Pool initialValue() {
+            return new Pool();
+        }
+    };
+
+    /**
+     * Creates a source with a new {@link SecureRandom}, refilled on a shared daemon thread.
+     */
+    public SecurePaddingSource() {
+        this(new SecureRandom(), DEFAULT_BLOCK_SIZE, Pools.backgroundExecutor());
+    }
+
+    /**
+     * @param random    generator of the octets, it is used by the refilling threads concurrently
+     * @param blockSize number of octets in each of the two blocks of every thread
+     * @param refiller  executor filling the spare blocks
+     */
+    public SecurePaddingSource(SecureRandom random, int blockSize, Executor refiller) {
+        if (blockSize < 1)
+            throw new IllegalArgumentException("Block size " + blockSize + " is not positive.");
+        if (random == null || refiller == null)
+            throw new IllegalArgumentException("Random and refiller must not be null.");
+
+        this.random = random;
+        this.blockSize = blockSize;
+        this.refiller = refiller;
+    }
+
+    @Override
+    public void nextNonZeroBytes(byte[] buffer, int offset, int length) {
+        pools.get().next(buffer, offset, length);
+    }
+
+    /**
+     * Fills the block with nonzero octets. Zero octets of a bulk draw are dropped
+     * and the shortfall, about one octet in 256, is drawn again.
+     */
+    private void fill(byte[] block) {
+        random.nextBytes(block);
+        int filled = 0;
+        for (byte b : block)
+            if (b != 0)
+                block[filled++] = b;
+
+        while (filled < block.length) {
+            byte[] draw = new byte[block.length - filled];
+            random.nextBytes(draw);
+            for (byte b : draw)
+                if (b != 0)
+                    block[filled++] = b;
+        }
+    }
+
+    /**
+     * Pool of a single thread.
+     */
+    private class Pool {
+        private final AtomicReference<byte[]> spare = new AtomicReference<>();
+        private byte[] block = new byte[blockSize];
+        private int position = blockSize;
+        /**
+         * Refill task in flight, only the task itself clears it so that a stale task finishing
+         * late does not hide a newer one.
+         */
+        private final AtomicReference<Runnable> refilling = new AtomicReference<>();
+
+        Pool() {
+            refill(new byte[blockSize]);
+        }
+
+        void next(byte[] buffer, int offset, int length) {
+            while (length > 0) {
+                if (position == block.length)
+                    swap();
+
+                int count = Math.min(length, block.length - position);
+                System.arraycopy(block, position, buffer, offset, count);
+                position += count;
+                offset += count;
+                length -= count;
+            }
+        }
+
+        private void swap() {
+            byte[] ready = spare.getAndSet(null);
+            if (ready != null) {
+                refill(block);
+                block = ready;
+            } else {
+                //The background refill fell behind, fill the spent block here.
+                fill(block);
+                if (refilling.get() == null)
+                    refill(new byte[blockSize]);
+            }
+            position = 0;
+        }
+
+        private void refill(final byte[] spent) {
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    fill(spent);
+                    spare.set(spent);
+                    refilling.compareAndSet(this, null);
+                }
+            };
+            refilling.set(task);
+            try {
+                refiller.execute(task);
+            } catch (RejectedExecutionException e) {
+                refilling.compareAndSet(task, null);
+            }
+        }
+    }
+}
@@ -0,0 +1,413 @@
+package com.oviron.yar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.concurrent.Executor;
+
+/**
+ * Main library class, containing all encryption and signature methods
+ * <p/>
+ * Every call prepares the key-dependent state anew. To process many messages
+ * with the same key use {@link YarCipher}, {@link YarSigner} and {@link YarVerifier}.
+ *
+ * @author Oviron
+ */
+public class Yar {
+    public static byte[] encrypt(String message, RSAPublicKey publicKey) {
+        return encrypt(message.getBytes(), publicKey);
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-ENCRYPT implementation
+     *
+     * @param message   message to be encrypted, an octet sequence of length mLen,
+     *                  where mLen <= (k – 11)
+     * @param publicKey recipient’s RSA public key (k denotes the length in octets
+     *                  of the modulus n)
+     * @return ciphertext, an octet sequence of length k
+     */
+    public static byte[] encrypt(byte[] message, RSAPublicKey publicKey) {
+        return new YarCipher(publicKey).encrypt(message);
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-DECRYPT implementation
+     * <p/>
+     * A ciphertext with an invalid padding is not reported, it decrypts to a pseudorandom
+     * message instead, see {@link YarCipher}.
+     *
+     * @param ciphertext ciphertext to be decrypted, an octet sequence of length k, where k is
+     *                   the length in octets of the RSA modulus n
+     * @param privateKey recipient’s RSA private key
+     * @return message, an octet sequence of length at most k – 11
+     */
+    public static byte[] decrypt(byte[] ciphertext, RSAPrivateKey privateKey) {
+        return new YarCipher(privateKey).decrypt(ciphertext);
+    }
+
+    /**
+     * RSAES-OAEP-ENCRYPT implementation, with an empty label and MGF1 over the same hash function
+     *
+     * @param message    message to be encrypted, an octet sequence of length mLen,
+     *                   where mLen <= k – 2hLen – 2
+     * @param publicKey  recipient’s RSA public key
+     * @param hashMethod hash function, hLen denotes the length in octets of its output
+     * @return ciphertext, an octet sequence of length k
+     */
+    public static byte[] encryptOaep(byte[] message, RSAPublicKey publicKey, HashMethod hashMethod) {
+        return new YarOaepCipher(publicKey, hashMethod).encrypt(message);
+    }
+
+    /**
+     * RSAES-OAEP-DECRYPT implementation, with an empty label and MGF1 over the same hash function
+     *
+     * @param ciphertext ciphertext to be decrypted, an octet sequence of length k
+     * @param privateKey recipient’s RSA private key
+     * @param hashMethod hash function, hLen denotes the length in octets of its output
+     * @return message, an octet sequence of length at most k – 2hLen – 2
+     */
+    public static byte[] decryptOaep(byte[] ciphertext, RSAPrivateKey privateKey, HashMethod hashMethod) {
+        return new YarOaepCipher(privateKey, hashMethod).decrypt(ciphertext);
+    }
+
+    /**
+     * Hybrid encryption of everything read from the stream until its end, for payloads
+     * of any length. See {@link YarEnvelope} for the envelope format.
+     *
+     * @param in        payload, the stream is not closed
+     * @param out       destination of the envelope, the stream is not closed
+     * @param publicKey recipient’s RSA public key
+     * @throws IOException if reading or writing fails
+     */
+    public static void encrypt(InputStream in, OutputStream out, RSAPublicKey publicKey) throws IOException {
+        YarEnvelope.encrypt(in, out, publicKey);
+    }
+
+    /**
+     * Hybrid encryption of everything read from the channel until its end, for payloads
+     * of any length. See {@link YarEnvelope} for the envelope format.
+     *
+     * @param in        payload, the channel is not closed
+     * @param out       destination of the envelope, the channel is not closed
+     * @param publicKey recipient’s RSA public key
+     * @throws IOException if reading or writing fails
+     */
+    public static void encrypt(ReadableByteChannel in, WritableByteChannel out, RSAPublicKey publicKey)
+            throws IOException {
+        YarEnvelope.encrypt(in, out, publicKey);
+    }
+
+    /**
+     * Decryption of an envelope created by the hybrid encryption.
+     *
+     * @param in         envelope, the stream is not closed
+     * @param out        destination of the payload, the stream is not closed
+     * @param privateKey recipient’s RSA private key
+     * @throws IOException if reading or writing fails
+     */
+    public static void decrypt(InputStream in, OutputStream out, RSAPrivateKey privateKey) throws IOException {
+        YarEnvelope.decrypt(in, out, privateKey);
+    }
+
+    /**
+     * Decryption of an envelope created by the hybrid encryption.
+     *
+     * @param in         envelope, the channel is not closed
+     * @param out        destination of the payload, the channel is not closed
+     * @param privateKey recipient’s RSA private key
+     * @throws IOException if reading or writing fails
+     */
+    public static void decrypt(ReadableByteChannel in, WritableByteChannel out, RSAPrivateKey privateKey)
+            throws IOException {
+        YarEnvelope.decrypt(in, out, privateKey);
+    }
+
+    public static byte[] sign(String message, RSAPrivateKey privateKey, HashMethod hashMethod) {
+        return sign(message.getBytes(), privateKey, hashMethod);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN implementation
+     *
+     * @param message    message to be signed, an octet sequence
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @return signature, an octet sequence of length k,
+     *         where k is the length in octets of the RSA modulus n
+     */
+    public static byte[] sign(byte[] message, RSAPrivateKey privateKey, HashMethod hashMethod) {
+        return new YarSigner(privateKey, hashMethod).sign(message);
+    }
+
+    /**
+     * RSASSA-PSS-SIGN implementation, with MGF1 over the same hash function and a salt
+     * as long as its output
+     *
+     * @param message    message to be signed, an octet sequence
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @return signature, an octet sequence of length k
+     */
+    public static byte[] signPss(byte[] message, RSAPrivateKey privateKey, HashMethod hashMethod) {
+        return new YarPssSigner(privateKey, hashMethod).sign(message);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN of the remaining octets of the buffer, which may be a direct one.
+     *
+     * @param message    message to be signed, consumed up to its limit
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @return signature, an octet sequence of length k
+     */
+    public static byte[] sign(ByteBuffer message, RSAPrivateKey privateKey, HashMethod hashMethod) {
+        return new YarSigner(privateKey, hashMethod).sign(message);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN of everything read from the stream until its end.
+     * The stream is hashed through a fixed-size buffer, so it is never held in memory as a whole.
+     *
+     * @param message    message to be signed, the stream is not closed
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @return signature, an octet sequence of length k
+     * @throws IOException if reading the stream fails
+     */
+    public static byte[] sign(InputStream message, RSAPrivateKey privateKey, HashMethod hashMethod)
+            throws IOException {
+        return new YarSigner(privateKey, hashMethod).sign(message);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN of everything read from the channel until its end.
+     * The channel is hashed through a fixed-size buffer, so it is never held in memory as a whole.
+     *
+     * @param message    message to be signed, the channel is not closed
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @return signature, an octet sequence of length k
+     * @throws IOException if reading the channel fails
+     */
+    public static byte[] sign(ReadableByteChannel message, RSAPrivateKey privateKey, HashMethod hashMethod)
+            throws IOException {
+        return new YarSigner(privateKey, hashMethod).sign(message);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN of the file content.
+     * The file is mapped into memory and hashed one fixed-size region at a time.
+     *
+     * @param message    file to be signed
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @return signature, an octet sequence of length k
+     * @throws IOException if reading the file fails
+     */
+    public static byte[] sign(Path message, RSAPrivateKey privateKey, HashMethod hashMethod) throws IOException {
+        return new YarSigner(privateKey, hashMethod).sign(message);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN of a message hashed elsewhere.
+     *
+     * @param hash       hash value of the message computed with the given hash function
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod hash function the hash value was computed with
+     * @return signature, an octet sequence of length k
+     */
+    public static byte[] signDigest(byte[] hash, RSAPrivateKey privateKey, HashMethod hashMethod) {
+        return new YarSigner(privateKey, hashMethod).signDigest(hash);
+    }
+
+    public static boolean verify(String message, byte[] signature, RSAPublicKey publicKey, HashMethod hashMethod) {
+        return verify(message.getBytes(), signature, publicKey, hashMethod);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY implementation
+     *
+     * @param message    message whose signature is to be verified, an octet sequence
+     * @param signature  signature to be verified, an octet sequence of length k, where k is the
+     *                   length in octets of the RSA modulus n
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     */
+    public static boolean verify(byte[] message, byte[] signature, RSAPublicKey publicKey, HashMethod hashMethod) {
+        return new YarVerifier(publicKey, hashMethod).verify(message, signature);
+    }
+
+    /**
+     * RSASSA-PSS-VERIFY implementation, with MGF1 over the same hash function and a salt
+     * as long as its output
+     *
+     * @param message    message whose signature is to be verified, an octet sequence
+     * @param signature  signature to be verified, an octet sequence of length k
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     */
+    public static boolean verifyPss(byte[] message, byte[] signature, RSAPublicKey publicKey, HashMethod hashMethod) {
+        return new YarPssVerifier(publicKey, hashMethod).verify(message, signature);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY of the remaining octets of the buffer, which may be a direct one.
+     *
+     * @param message    message whose signature is to be verified, consumed up to its limit
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     */
+    public static boolean verify(ByteBuffer message, byte[] signature, RSAPublicKey publicKey,
+                                 HashMethod hashMethod) {
+        return new YarVerifier(publicKey, hashMethod).verify(message, signature);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY of everything read from the stream until its end.
+     *
+     * @param message    message whose signature is to be verified, the stream is not closed
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     * @throws IOException if reading the stream fails
+     */
+    public static boolean verify(InputStream message, byte[] signature, RSAPublicKey publicKey,
+                                 HashMethod hashMethod) throws IOException {
+        return new YarVerifier(publicKey, hashMethod).verify(message, signature);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY of everything read from the channel until its end.
+     *
+     * @param message    message whose signature is to be verified, the channel is not closed
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     * @throws IOException if reading the channel fails
+     */
+    public static boolean verify(ReadableByteChannel message, byte[] signature, RSAPublicKey publicKey,
+                                 HashMethod hashMethod) throws IOException {
+        return new YarVerifier(publicKey, hashMethod).verify(message, signature);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY of the file content.
+     *
+     * @param message    file whose signature is to be verified
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     * @throws IOException if reading the file fails
+     */
+    public static boolean verify(Path message, byte[] signature, RSAPublicKey publicKey, HashMethod hashMethod)
+            throws IOException {
+        return new YarVerifier(publicKey, hashMethod).verify(message, signature);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY of a message hashed elsewhere.
+     *
+     * @param hash       hash value of the message computed with the given hash function
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod hash function the hash value was computed with
+     * @return signature authenticity
+     */
+    public static boolean verifyDigest(byte[] hash, byte[] signature, RSAPublicKey publicKey,
+                                       HashMethod hashMethod) {
+        return new YarVerifier(publicKey, hashMethod).verifyDigest(hash, signature);
+    }
+
+    /**
+     * Installs the receiver of the outcome and latency of every operation, for instance a registered
+     * {@link YarMetricsRecorder}. Applies immediately, to existing contexts as well.
+     *
+     * @param metrics metrics, null to go back to {@link YarMetrics#NONE}
+     */
+    public static void setMetrics(YarMetrics metrics) {
+        Metrics.set(metrics);
+    }
+
+    /**
+     * @return the installed metrics, {@link YarMetrics#NONE} by default
+     */
+    public static YarMetrics getMetrics() {
+        return Metrics.get();
+    }
+
+    /**
+     * Sets the source of the EME-PKCS1-v1_5 padding octets of encryptions.
+     * Applies to ciphers created afterwards, including those of the static methods.
+     *
+     * @param source padding source, null to go back to the default {@link SecurePaddingSource}
+     */
+    public static void setPaddingSource(PaddingSource source) {
+        YarCipher.setDefaultPaddingSource(source);
+    }
+
+    /**
+     * Makes private key operations with CRT keys of at least minKeyLength bits run
+     * c^dP mod p and c^dQ mod q concurrently, on a shared pool with one thread per processor.
+     * This lowers the latency of a single decryption or signature at the cost of
+     * some throughput. Applies to contexts created afterwards.
+     *
+     * @param minKeyLength smallest modulus length in bits to run the halves concurrently for
+     */
+    public static void enableParallelCrt(int minKeyLength) {
+        enableParallelCrt(minKeyLength, Pools.defaultPool());
+    }
+
+    /**
+     * Makes private key operations with CRT keys of at least minKeyLength bits run
+     * c^dP mod p and c^dQ mod q concurrently, the latter on the given executor.
+     * Applies to contexts created afterwards.
+     *
+     * @param minKeyLength smallest modulus length in bits to run the halves concurrently for
+     * @param executor     executor running the second half
+     */
+    public static void enableParallelCrt(int minKeyLength, Executor executor) {
+        if (executor == null)
+            throw new IllegalArgumentException("Executor is null.");
+        PrivateKeyEngine.setParallelCrt(executor, minKeyLength);
+    }
+
+    /**
+     * Makes private key operations compute both CRT halves on the calling thread again.
+     * Applies to contexts created afterwards.
+     */
+    public static void disableParallelCrt() {
+        PrivateKeyEngine.setParallelCrt(null, 0);
+    }
+
+    /**
+     * Makes private key operations blind the exponentiation with factors refreshed by squaring,
+     * which is the default. Applies to contexts created afterwards.
+     */
+    public static void enableBlinding() {
+        PrivateKeyEngine.setBlinding(true);
+    }
+
+    /**
+     * Makes private key operations exponentiate the raw representative, which saves
+     * about three modular multiplications per operation and a modular inverse per context
+     * but leaks the timing of the exponentiation of attacker-chosen ciphertexts.
+     * Applies to contexts created afterwards.
+     */
+    public static void disableBlinding() {
+        PrivateKeyEngine.setBlinding(false);
+    }
+}
@@ -0,0 +1,266 @@
+package com.oviron.yar;
+
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Bulk encryption and signature operations, spread over the threads of an executor.
+ * <p/>
+ * A batch is split into contiguous chunks, one task per chunk. Each task keeps its own
+ * {@link YarSigner}, {@link YarVerifier} or {@link YarCipher} and reuses it while
+ * consecutive items share a key. Results keep the order of the input and a failing
+ * item is reported in the {@link YarBatchResult} without aborting the others.
+ *
+ * @author Oviron
+ */
+public class YarBatch {
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ExecutorService executor;
+    private final int parallelism;
+
+    /**
+     * Creates a batch processor running on a shared pool with one thread per processor.
+     */
+    public YarBatch() {
+        this(Pools.defaultPool());
+    }
+
+    /**
+     * @param pool pool to run the batches on
+     */
+    public YarBatch(ForkJoinPool pool) {
+        this(pool, pool.getParallelism());
+    }
+
+    /**
+     * @param executor    executor to run the batches on
+     * @param parallelism number of threads of the executor expected to work on a batch
+     */
+    public YarBatch(ExecutorService executor, int parallelism) {
+        if (parallelism < 1)
+            throw new IllegalArgumentException("Parallelism " + parallelism + " is not positive.");
+
+        this.executor = executor;
+        this.parallelism = parallelism;
+    }
+
+    public YarBatchResult<byte[]> signAll(List<byte[]> messages, RSAPrivateKey privateKey, HashMethod hashMethod)
+            throws InterruptedException {
+        return signAll(messages, Collections.nCopies(messages.size(), privateKey), hashMethod);
+    }
+
+    /**
+     * Signs every message with the private key at the same index.
+     *
+     * @param messages    messages to be signed
+     * @param privateKeys signer’s RSA private keys
+     * @param hashMethod  specific hash function
+     * @return signatures
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the batch
+     */
+    public YarBatchResult<byte[]> signAll(List<byte[]> messages, List<? extends RSAPrivateKey> privateKeys,
+                                          final HashMethod hashMethod) throws InterruptedException {
+        final byte[][] m = toArray(messages);
+        final RSAPrivateKey[] keys = privateKeys.toArray(new RSAPrivateKey[privateKeys.size()]);
+        checkSize(m.length, keys.length);
+
+        return run(m.length, new Operation<byte[]>() {
+            private YarSigner signer;
+
+            @Override
+            byte[] apply(int index) {
+                if (signer == null || signer.getPrivateKey() != keys[index])
+                    signer = new YarSigner(keys[index], hashMethod);
+                return signer.sign(m[index]);
+            }
+        });
+    }
+
+    public YarBatchResult<Boolean> verifyAll(List<byte[]> messages, List<byte[]> signatures,
+                                             RSAPublicKey publicKey, HashMethod hashMethod)
+            throws InterruptedException {
+        return verifyAll(messages, signatures, Collections.nCopies(messages.size(), publicKey), hashMethod);
+    }
+
+    /**
+     * Verifies every signature against the message and the public key at the same index.
+     *
+     * @param messages   messages whose signatures are to be verified
+     * @param signatures signatures to be verified
+     * @param publicKeys signer’s RSA public keys
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the batch
+     */
+    public YarBatchResult<Boolean> verifyAll(List<byte[]> messages, List<byte[]> signatures,
+                                             List<? extends RSAPublicKey> publicKeys, final HashMethod hashMethod)
+            throws InterruptedException {
+        final byte[][] m = toArray(messages);
+        final byte[][] s = toArray(signatures);
+        final RSAPublicKey[] keys = publicKeys.toArray(new RSAPublicKey[publicKeys.size()]);
+        checkSize(m.length, s.length);
+        checkSize(m.length, keys.length);
+
+        return run(m.length, new Operation<Boolean>() {
+            private YarVerifier verifier;
+
+            @Override
+            Boolean apply(int index) {
+                if (verifier == null || verifier.getPublicKey() != keys[index])
+                    verifier = new YarVerifier(keys[index], hashMethod);
+                return verifier.verify(m[index], s[index]);
+            }
+        });
+    }
+
+    public YarBatchResult<byte[]> encryptAll(List<byte[]> messages, RSAPublicKey publicKey)
+            throws InterruptedException {
+        return encryptAll(messages, Collections.nCopies(messages.size(), publicKey));
+    }
+
+    /**
+     * Encrypts every message with the public key at the same index.
+     *
+     * @param messages   messages to be encrypted
+     * @param publicKeys recipient’s RSA public keys
+     * @return ciphertexts
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the batch
+     */
+    public YarBatchResult<byte[]> encryptAll(List<byte[]> messages, List<? extends RSAPublicKey> publicKeys)
+            throws InterruptedException {
+        final byte[][] m = toArray(messages);
+        final RSAPublicKey[] keys = publicKeys.toArray(new RSAPublicKey[publicKeys.size()]);
+        checkSize(m.length, keys.length);
+
+        return run(m.length, new Operation<byte[]>() {
+            private YarCipher cipher;
+            private RSAPublicKey key;
+
+            @Override
+            byte[] apply(int index) {
+                if (cipher == null || key != keys[index]) {
+                    key = keys[index];
+                    cipher = new YarCipher(key);
+                }
+                return cipher.encrypt(m[index]);
+            }
+        });
+    }
+
+    public YarBatchResult<byte[]> decryptAll(List<byte[]> ciphertexts, RSAPrivateKey privateKey)
+            throws InterruptedException {
+        return decryptAll(ciphertexts, Collections.nCopies(ciphertexts.size(), privateKey));
+    }
+
+    /**
+     * Decrypts every ciphertext with the private key at the same index.
+     *
+     * @param ciphertexts ciphertexts to be decrypted
+     * @param privateKeys recipient’s RSA private keys
+     * @return messages
+     * @throws InterruptedException if the calling thread is interrupted while waiting for the batch
+     */
+    public YarBatchResult<byte[]> decryptAll(List<byte[]> ciphertexts, List<? extends RSAPrivateKey> privateKeys)
+            throws InterruptedException {
+        final byte[][] c = toArray(ciphertexts);
+        final RSAPrivateKey[] keys = privateKeys.toArray(new RSAPrivateKey[privateKeys.size()]);
+        checkSize(c.length, keys.length);
+
+        return run(c.length, new Operation<byte[]>() {
+            private YarCipher cipher;
+            private RSAPrivateKey key;
+
+            @Override
+            byte[] apply(int index) {
+                if (cipher == null || key != keys[index]) {
+                    key = keys[index];
+                    cipher = new YarCipher(key);
+                }
+                return cipher.decrypt(c[index]);
+            }
+        });
+    }
+
+    /**
+     * Runs the operation for every item index, one task per chunk of consecutive items.
+     * Every chunk gets its own copy of the operation, so operations may keep non thread-safe state.
+     */
+    private <T> YarBatchResult<T> run(int size, Operation<T> operation) throws InterruptedException {
+        final YarBatchResult<T> result = new YarBatchResult<>(size);
+        if (size == 0)
+            return result;
+
+        int chunks = Math.min(size, parallelism * CHUNKS_PER_THREAD);
+        List<Callable<Void>> tasks = new ArrayList<>(chunks);
+        for (int i = 0; i < chunks; i++) {
+            final int from = (int) ((long) size * i / chunks);
+            final int to = (int) ((long) size * (i + 1) / chunks);
+            final Operation<T> chunkOperation = operation.copy();
+
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    for (int index = from; index < to; index++) {
+                        try {
+                            result.set(index, chunkOperation.apply(index));
+                        } catch (RuntimeException e) {
+                            result.fail(index, e);
+                        }
+                    }
+                    return null;
+                }
+            });
+        }
+
+        //invokeAll waits for every task and publishes the results they wrote.
+        for (Future<Void> future : executor.invokeAll(tasks)) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                //Item failures are caught inside the task, only errors get here.
+                if (e.getCause() instanceof Error)
+                    throw (Error) e.getCause();
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+
+        return result;
+    }
+
+    private static byte[][] toArray(List<byte[]> list) {
+        return list.toArray(new byte[list.size()][]);
+    }
+
+    private static void checkSize(int expected, int actual) {
+        if (expected != actual)
+            throw new IllegalArgumentException("Batch sizes differ: " + expected + " and " + actual + ".");
+    }
+
+    /**
+     * Operation applied to a single batch item.
+     */
+    private abstract static class Operation<T> implements Cloneable {
+        abstract T apply(int index);
+
+        /**
+         * @return copy of the operation without any state cached by previous items
+         */
+        @SuppressWarnings("unchecked")
+        Operation<T> copy() {
+            try {
+                return (Operation<T>) clone();
+            } catch (CloneNotSupportedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
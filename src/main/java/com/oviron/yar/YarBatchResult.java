@@ -0,0 +1,77 @@
+package com.oviron.yar;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Results of a batch operation, in the order of the batch input.
+ * <p/>
+ * Every item either has a result or the exception its operation failed with,
+ * a failed item does not affect the rest of the batch.
+ *
+ * @author Oviron
+ */
+public class YarBatchResult<T> {
+    private final Object[] results;
+    private final RuntimeException[] failures;
+
+    YarBatchResult(int size) {
+        this.results = new Object[size];
+        this.failures = new RuntimeException[size];
+    }
+
+    void set(int index, T result) {
+        results[index] = result;
+    }
+
+    void fail(int index, RuntimeException failure) {
+        failures[index] = failure;
+    }
+
+    public int size() {
+        return results.length;
+    }
+
+    public boolean isSuccess(int index) {
+        return failures[index] == null;
+    }
+
+    /**
+     * @param index item index
+     * @return result of the item
+     * @throws RuntimeException the exception the item failed with
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (failures[index] != null)
+            throw failures[index];
+        return (T) results[index];
+    }
+
+    /**
+     * @param index item index
+     * @return exception the item failed with or null if it succeeded
+     */
+    public RuntimeException getFailure(int index) {
+        return failures[index];
+    }
+
+    public int getFailureCount() {
+        int count = 0;
+        for (RuntimeException failure : failures)
+            if (failure != null)
+                count++;
+        return count;
+    }
+
+    /**
+     * @return results of all items, null for the failed ones
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getResults() {
+        List<T> list = new ArrayList<>(results.length);
+        for (Object result : results)
+            list.add((T) result);
+        return list;
+    }
+}
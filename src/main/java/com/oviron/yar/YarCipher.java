@@ -0,0 +1,349 @@
+package com.oviron.yar;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+import static com.oviron.yar.Encodings.*;
+import static com.oviron.yar.Primitives.*;
+
+/**
+ * RSAES-PKCS1-V1_5 encryption or decryption bound to one key.
+ * <p/>
+ * A cipher created with a public key encrypts, a cipher created with a private key decrypts.
+ * The modulus length, the key engine and the encoded message buffer are prepared once and reused.
+ * Messages and ciphertexts may also be read from and written into caller-provided arrays and buffers,
+ * so that only the big integers of the RSA operation itself are allocated.
+ * <p/>
+ * Decryption does not report an invalid padding: the padding is checked in a single pass without
+ * branches on the decrypted octets, and a ciphertext with an invalid padding decrypts to a
+ * pseudorandom message determined by the ciphertext and the private key, see {@link ImplicitRejection}.
+ * This leaves an attacker without the padding oracle of Bleichenbacher's attack. Protocols must
+ * therefore authenticate the decrypted message, as {@link YarEnvelope} does with the content key.
+ * Instances are not thread-safe, use a separate cipher per thread.
+ *
+ * @author Oviron
+ */
+public class YarCipher {
+    private static volatile PaddingSource defaultPaddingSource;
+
+    private final RSAKey key;
+    private final PublicKeyEngine publicEngine;
+    private final PrivateKeyEngine privateEngine;
+    private final PaddingSource paddingSource;
+    private final ImplicitRejection rejection;
+    private final int k;
+    private final byte[] EM;
+
+    /**
+     * @param publicKey recipient’s RSA public key
+     */
+    public YarCipher(RSAPublicKey publicKey) {
+        this(publicKey, defaultPaddingSource());
+    }
+
+    /**
+     * @param publicKey     recipient’s RSA public key
+     * @param paddingSource source of the padding octets
+     */
+    public YarCipher(RSAPublicKey publicKey, PaddingSource paddingSource) {
+        if (paddingSource == null)
+            throw new IllegalArgumentException("Padding source is null.");
+        this.key = publicKey;
+        this.publicEngine = new PublicKeyEngine(publicKey);
+        this.privateEngine = null;
+        this.paddingSource = paddingSource;
+        this.rejection = null;
+        this.k = modulusLength(publicKey);
+        this.EM = new byte[k];
+    }
+
+    /**
+     * @param privateKey recipient’s RSA private key
+     */
+    public YarCipher(RSAPrivateKey privateKey) {
+        this.key = privateKey;
+        this.publicEngine = null;
+        this.privateEngine = new PrivateKeyEngine(privateKey);
+        this.paddingSource = null;
+        this.k = modulusLength(privateKey);
+        this.rejection = k < 11 ? null : new ImplicitRejection(privateKey, k);
+        this.EM = new byte[k];
+    }
+
+    public byte[] encrypt(String message) {
+        return encrypt(message.getBytes());
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-ENCRYPT implementation
+     *
+     * @param message message to be encrypted, an octet sequence of length mLen,
+     *                where mLen <= (k – 11)
+     * @return ciphertext, an octet sequence of length k
+     */
+    public byte[] encrypt(byte[] message) {
+        byte[] ciphertext = new byte[k];
+        encrypt(message, 0, message.length, ciphertext, 0);
+        return ciphertext;
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-ENCRYPT of a part of an array, writing the ciphertext into a part of another one.
+     *
+     * @param message          array containing the message
+     * @param messageOffset    offset of the message in the array
+     * @param messageLength    mLen, the length of the message, where mLen <= (k – 11)
+     * @param ciphertext       array receiving the ciphertext
+     * @param ciphertextOffset offset of the ciphertext in the array
+     * @return k, the length in octets of the ciphertext
+     */
+    public int encrypt(byte[] message, int messageOffset, int messageLength, byte[] ciphertext, int ciphertextOffset) {
+        checkEncryption(messageLength, ciphertext.length - ciphertextOffset);
+        System.arraycopy(message, messageOffset, EM, k - messageLength, messageLength);
+        I2OSP(encryptEncoded(messageLength), k, ciphertext, ciphertextOffset);
+        return k;
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-ENCRYPT of the remaining octets of the buffer, putting the ciphertext
+     * into another buffer. Both may be direct ones.
+     *
+     * @param message    message to be encrypted, consumed up to its limit
+     * @param ciphertext buffer receiving the ciphertext at its position
+     * @return k, the length in octets of the ciphertext
+     */
+    public int encrypt(ByteBuffer message, ByteBuffer ciphertext) {
+        int mLen = message.remaining();
+        checkEncryption(mLen, ciphertext.remaining());
+        message.get(EM, k - mLen, mLen);
+        BigInteger c = encryptEncoded(mLen);
+
+        if (ciphertext.hasArray()) {
+            I2OSP(c, k, ciphertext.array(), ciphertext.arrayOffset() + ciphertext.position());
+            ciphertext.position(ciphertext.position() + k);
+        } else {
+            //EM is not needed anymore, it holds the ciphertext on its way to the buffer.
+            I2OSP(c, k, EM, 0);
+            ciphertext.put(EM);
+        }
+        return k;
+    }
+
+    private void checkEncryption(int mLen, int outputLength) {
+        if (publicEngine == null)
+            throw new IllegalStateException("Cipher is not initialized for encryption.");
+
+        //1. Length checking: If mLen > k – 11, output “message too long” and stop.
+        if (mLen > k - 11)
+            throw new IllegalArgumentException("Message too long.");
+
+        if (outputLength < k)
+            throw new IllegalArgumentException("Output buffer too short.");
+    }
+
+    /**
+     * Encrypts the message already placed at the tail of EM.
+     *
+     * @param mLen length of the message
+     * @return ciphertext representative c
+     */
+    private BigInteger encryptEncoded(int mLen) {
+        //2. EME-PKCS1-v1_5 encoding:
+        //a. Generate an octet sequence PS of length k – mLen – 3 consisting of pseudorandomly
+        //generated nonzero octets.
+        //b. Concatenate PS, the message M, and other padding to form an encoded
+        //message EM of length k octets as
+        //        EM = 0x00 || 0x02 || PS || 0x00 || M
+        //Every octet of the reused EM buffer is rewritten here.
+        int psLen = k - mLen - 3;
+        EM[0] = 0x00;
+        EM[1] = 0x02;
+        paddingSource.nextNonZeroBytes(EM, 2, psLen);
+        EM[2 + psLen] = 0x00;
+
+        //3. RSA encryption:
+        //a. Convert the encoded message EM to an integer message representative m.
+        //b. Apply the RSAEP encryption primitive to the RSA public key and
+        //the message representative m to produce an integer ciphertext representative c.
+        //c. Convert the ciphertext representative c to a ciphertext C of length k octets.
+        //4. Output the ciphertext C.
+        long start = Metrics.start();
+        boolean success = false;
+        try {
+            BigInteger c = publicEngine.RSAEP(OS2IP(EM));
+            success = true;
+            return c;
+        } finally {
+            Metrics.record(YarMetrics.Operation.ENCRYPT, key, null, Metrics.stop(start), success);
+        }
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-DECRYPT implementation
+     *
+     * @param ciphertext ciphertext to be decrypted, an octet sequence of length k, where k is
+     *                   the length in octets of the RSA modulus n
+     * @return message, an octet sequence of length at most k – 11
+     */
+    public byte[] decrypt(byte[] ciphertext) {
+        int offset = decode(ciphertext, 0, ciphertext.length);
+
+        //4. Output M.
+        return Arrays.copyOfRange(EM, offset, k);
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-DECRYPT of a part of an array, writing the message into a part of another one.
+     *
+     * @param ciphertext       array containing the ciphertext
+     * @param ciphertextOffset offset of the ciphertext in the array
+     * @param ciphertextLength length of the ciphertext, k
+     * @param message          array receiving the message
+     * @param messageOffset    offset of the message in the array
+     * @return length of the message, at most k – 11
+     */
+    public int decrypt(byte[] ciphertext, int ciphertextOffset, int ciphertextLength, byte[] message, int messageOffset) {
+        int offset = decode(ciphertext, ciphertextOffset, ciphertextLength);
+        int mLen = k - offset;
+        if (message.length - messageOffset < mLen)
+            throw new IllegalArgumentException("Output buffer too short.");
+
+        //4. Output M.
+        System.arraycopy(EM, offset, message, messageOffset, mLen);
+        return mLen;
+    }
+
+    /**
+     * RSAES-PKCS1-V1_5-DECRYPT of the remaining octets of the buffer, putting the message
+     * into another buffer. Both may be direct ones.
+     *
+     * @param ciphertext ciphertext to be decrypted, consumed up to its limit
+     * @param message    buffer receiving the message at its position
+     * @return length of the message, at most k – 11
+     */
+    public int decrypt(ByteBuffer ciphertext, ByteBuffer message) {
+        int length = ciphertext.remaining();
+        int offset;
+        if (ciphertext.hasArray()) {
+            offset = decode(ciphertext.array(), ciphertext.arrayOffset() + ciphertext.position(), length);
+            ciphertext.position(ciphertext.limit());
+        } else {
+            if (length != k)
+                throw new IllegalArgumentException("Decryption error.");
+            //EM is rewritten by the decoding, it holds the ciphertext on its way from the buffer.
+            ciphertext.get(EM);
+            offset = decode(EM, 0, k);
+        }
+        int mLen = k - offset;
+        if (message.remaining() < mLen)
+            throw new IllegalArgumentException("Output buffer too short.");
+
+        //4. Output M.
+        message.put(EM, offset, mLen);
+        return mLen;
+    }
+
+    /**
+     * Decrypts the ciphertext held in a part of an array into EM, recording the operation.
+     *
+     * @return offset of the message M in EM
+     */
+    private int decode(byte[] ciphertext, int offset, int length) {
+        long start = Metrics.start();
+        boolean success = false;
+        try {
+            int messageOffset = decodeMessage(ciphertext, offset, length);
+            success = true;
+            return messageOffset;
+        } finally {
+            Metrics.record(YarMetrics.Operation.DECRYPT, key, null, Metrics.stop(start), success);
+        }
+    }
+
+    /**
+     * Decrypts the ciphertext held in a part of an array into EM.
+     *
+     * @return offset of the message M in EM
+     */
+    private int decodeMessage(byte[] ciphertext, int offset, int length) {
+        if (privateEngine == null)
+            throw new IllegalStateException("Cipher is not initialized for decryption.");
+
+        //1. Length checking: If the length of the ciphertext C is not k octets (or if k < 11),
+        //output “decryption error” and stop.
+        if (length != k || k < 11)
+            throw new IllegalArgumentException("Decryption error.");
+
+        //The synthetic message is computed before EM is overwritten, which may hold the ciphertext.
+        int syntheticLength = rejection.generate(ciphertext, offset);
+
+        //2. RSA decryption:
+        //a. Convert the ciphertext C to an integer ciphertext representative c.
+        //b. Apply the RSADP decryption primitive to the RSA private key and the
+        //ciphertext representative c to produce an integer message representative m.
+        BigInteger m;
+        try {
+            m = privateEngine.RSADP(OS2IP(ciphertext, offset, length));
+        } catch (IllegalArgumentException e) {
+            //If RSADP outputs “ciphertext representative out of range” (meaning that c >= n),
+            // output “decryption error” and stop.
+            throw new IllegalArgumentException("Decryption error.");
+        }
+
+        //c. Convert the message representative m to an encoded message EM of length k octets.
+        I2OSP(m, k, EM, 0);
+
+        //3. EME-PKCS1-v1_5 decoding: Separate the encoded message EM into an octet
+        //string PS consisting of nonzero octets and a message M as
+        //        EM = 0x00 || 0x02 || PS || 0x00 || M
+        //PS holds no zero octets, so the first zero octet after it is the delimiter.
+        //Every octet is visited and no branch depends on its value.
+        int invalid = (EM[0] & 0xff) | ((EM[1] & 0xff) ^ 0x02);
+        int found = 0;
+        int delimIndex = 0;
+        for (int i = 2; i < k; i++) {
+            int zero = ((EM[i] & 0xff) - 1) >>> 31;
+            delimIndex |= -(zero & ~found) & i;
+            found |= zero;
+        }
+
+        //If the first octet of EM does not have hexadecimal value 0x00, if the second octet
+        //of EM does not have hexadecimal value 0x02, if there is no octet with
+        //hexadecimal value 0x00 to separate PS from M, or if the length of PS is less than
+        //8 octets, output “decryption error” and stop.
+        //Instead of the error, the synthetic message is output.
+        invalid |= found ^ 1;
+        invalid |= (delimIndex - 10) >>> 31;
+        int valid = ((invalid | -invalid) >>> 31) - 1;
+
+        int mLen = (k - delimIndex - 1) & valid | syntheticLength & ~valid;
+        byte[] synthetic = rejection.message();
+        for (int i = 0; i < k; i++)
+            EM[i] = (byte) (EM[i] & valid | synthetic[i] & ~valid);
+
+        return k - mLen;
+    }
+
+    /**
+     * @param source padding source of the ciphers created afterwards, null for the default one
+     */
+    static void setDefaultPaddingSource(PaddingSource source) {
+        defaultPaddingSource = source;
+    }
+
+    private static PaddingSource defaultPaddingSource() {
+        PaddingSource source = defaultPaddingSource;
+        if (source == null) {
+            synchronized (YarCipher.class) {
+                source = defaultPaddingSource;
+                if (source == null)
+                    defaultPaddingSource = source = new SecurePaddingSource();
+            }
+        }
+        return source;
+    }
+}
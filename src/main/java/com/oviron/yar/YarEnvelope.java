@@ -0,0 +1,241 @@
+package com.oviron.yar;
+
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+/**
+ * Hybrid encryption of payloads of any length.
+ * <p/>
+ * A random content key is wrapped with RSAES-PKCS1-v1_5 and the payload is encrypted with
+ * AES in CTR mode in chunks of fixed size, each followed by an HMAC-SHA256 tag over its index,
+ * its final chunk flag, its length and its ciphertext. A message costs one RSA operation and
+ * a constant amount of memory whatever its length. A chunk is released only after its tag is
+ * checked, a payload cut short or reordered fails on the first affected chunk. The output
+ * already written before such a failure must be discarded by the caller.
+ * <p/>
+ * The envelope format is
+ * <pre>
+ *     "RSAE" || wrapped content key (k octets) || chunk || ... || final chunk
+ *     chunk = flag (1 octet, 1 for the final chunk) || length (4 octets) || ciphertext || tag (32 octets)
+ * </pre>
+ *
+ * @author Oviron
+ */
+public class YarEnvelope {
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final int ENCRYPTION_KEY_LENGTH = 16;
+    private static final int MAC_KEY_LENGTH = 32;
+    private static final int TAG_LENGTH = 32;
+    private static final byte[] MAGIC = {
+            0x52, //R
+            0x53, //S
+            0x41, //A
+            0x45  //(E)nvelope
+    };
+
+    private static final SecureRandom random = new SecureRandom();
+
+    /**
+     * Encrypts everything read from the stream until its end.
+     *
+     * @param in        payload, the stream is not closed
+     * @param out       destination of the envelope, the stream is not closed
+     * @param publicKey recipient’s RSA public key
+     * @throws IOException if reading or writing fails
+     */
+    public static void encrypt(InputStream in, OutputStream out, RSAPublicKey publicKey) throws IOException {
+        byte[] contentKey = new byte[ENCRYPTION_KEY_LENGTH + MAC_KEY_LENGTH];
+        random.nextBytes(contentKey);
+
+        out.write(MAGIC);
+        out.write(Yar.encrypt(contentKey, publicKey));
+
+        ChunkCipher cipher = new ChunkCipher(contentKey, Cipher.ENCRYPT_MODE);
+        Arrays.fill(contentKey, (byte) 0);
+
+        PushbackInputStream input = new PushbackInputStream(in, 1);
+        byte[] plaintext = new byte[CHUNK_SIZE];
+        byte[] chunk = new byte[CHUNK_SIZE + TAG_LENGTH];
+        boolean last;
+        do {
+            int length = readFully(input, plaintext);
+
+            //The chunk is the final one if the stream ends with it.
+            int next = length == CHUNK_SIZE ? input.read() : -1;
+            last = next == -1;
+            if (!last)
+                input.unread(next);
+
+            cipher.apply(plaintext, length, chunk, last);
+            out.write(last ? 1 : 0);
+            out.write(ByteBuffer.allocate(4).putInt(length).array());
+            out.write(chunk, 0, length + TAG_LENGTH);
+        } while (!last);
+    }
+
+    /**
+     * Decrypts an envelope read from the stream.
+     *
+     * @param in         envelope, the stream is read up to the end of the envelope and is not closed
+     * @param out        destination of the payload, the stream is not closed
+     * @param privateKey recipient’s RSA private key
+     * @throws IOException if reading or writing fails
+     */
+    public static void decrypt(InputStream in, OutputStream out, RSAPrivateKey privateKey) throws IOException {
+        DataInputStream input = new DataInputStream(in);
+
+        byte[] magic = new byte[MAGIC.length];
+        byte[] wrappedKey = new byte[Encodings.modulusLength(privateKey)];
+        try {
+            input.readFully(magic);
+            input.readFully(wrappedKey);
+        } catch (EOFException e) {
+            throw new IllegalArgumentException("Decryption error.");
+        }
+        if (!Arrays.equals(MAGIC, magic))
+            throw new IllegalArgumentException("Decryption error.");
+
+        byte[] contentKey = Yar.decrypt(wrappedKey, privateKey);
+        if (contentKey.length != ENCRYPTION_KEY_LENGTH + MAC_KEY_LENGTH)
+            throw new IllegalArgumentException("Decryption error.");
+
+        ChunkCipher cipher = new ChunkCipher(contentKey, Cipher.DECRYPT_MODE);
+        Arrays.fill(contentKey, (byte) 0);
+
+        byte[] chunk = new byte[CHUNK_SIZE + TAG_LENGTH];
+        byte[] plaintext = new byte[CHUNK_SIZE];
+        boolean last;
+        do {
+            int length;
+            try {
+                int flag = input.readUnsignedByte();
+                length = input.readInt();
+                last = flag == 1;
+                if (flag > 1 || length < 0 || length > CHUNK_SIZE || (!last && length != CHUNK_SIZE))
+                    throw new IllegalArgumentException("Decryption error.");
+                input.readFully(chunk, 0, length + TAG_LENGTH);
+            } catch (EOFException e) {
+                throw new IllegalArgumentException("Decryption error.");
+            }
+
+            cipher.apply(chunk, length, plaintext, last);
+            out.write(plaintext, 0, length);
+        } while (!last);
+    }
+
+    /**
+     * Encrypts everything read from the channel until its end.
+     *
+     * @param in        payload, the channel is not closed
+     * @param out       destination of the envelope, the channel is not closed
+     * @param publicKey recipient’s RSA public key
+     * @throws IOException if reading or writing fails
+     */
+    public static void encrypt(ReadableByteChannel in, WritableByteChannel out, RSAPublicKey publicKey)
+            throws IOException {
+        OutputStream output = Channels.newOutputStream(out);
+        encrypt(Channels.newInputStream(in), output, publicKey);
+        output.flush();
+    }
+
+    /**
+     * Decrypts an envelope read from the channel.
+     *
+     * @param in         envelope, the channel is not closed
+     * @param out        destination of the payload, the channel is not closed
+     * @param privateKey recipient’s RSA private key
+     * @throws IOException if reading or writing fails
+     */
+    public static void decrypt(ReadableByteChannel in, WritableByteChannel out, RSAPrivateKey privateKey)
+            throws IOException {
+        OutputStream output = Channels.newOutputStream(out);
+        decrypt(Channels.newInputStream(in), output, privateKey);
+        output.flush();
+    }
+
+    private static int readFully(InputStream in, byte[] buffer) throws IOException {
+        int length = 0;
+        int read;
+        while (length < buffer.length && (read = in.read(buffer, length, buffer.length - length)) != -1)
+            length += read;
+        return length;
+    }
+
+    /**
+     * AES-CTR keystream running over the whole payload together with per chunk HMAC-SHA256 tags.
+     */
+    private static class ChunkCipher {
+        private final Cipher cipher;
+        private final Mac mac;
+        private final int mode;
+        private final byte[] header = new byte[13];
+        private final byte[] tag = new byte[TAG_LENGTH];
+        private long index;
+
+        ChunkCipher(byte[] contentKey, int mode) {
+            this.mode = mode;
+            try {
+                //The content key is used for one message only, so the keystream may start at zero.
+                cipher = Cipher.getInstance("AES/CTR/NoPadding");
+                cipher.init(mode, new SecretKeySpec(contentKey, 0, ENCRYPTION_KEY_LENGTH, "AES"),
+                        new IvParameterSpec(new byte[16]));
+                mac = Mac.getInstance("HmacSHA256");
+                mac.init(new SecretKeySpec(contentKey, ENCRYPTION_KEY_LENGTH, MAC_KEY_LENGTH, "HmacSHA256"));
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Encrypts a chunk and appends its tag, or checks the tag of a chunk and decrypts it.
+         *
+         * @param input  plaintext, or ciphertext followed by its tag
+         * @param length length of the plaintext or ciphertext
+         * @param output ciphertext followed by its tag, or plaintext
+         * @param last   whether it is the final chunk
+         */
+        void apply(byte[] input, int length, byte[] output, boolean last) {
+            ByteBuffer.wrap(header).putLong(index++).put((byte) (last ? 1 : 0)).putInt(length);
+            try {
+                if (mode == Cipher.ENCRYPT_MODE) {
+                    cipher.update(input, 0, length, output, 0);
+                    authenticate(output, length);
+                    System.arraycopy(tag, 0, output, length, TAG_LENGTH);
+                } else {
+                    authenticate(input, length);
+                    int difference = 0;
+                    for (int i = 0; i < TAG_LENGTH; i++)
+                        difference |= tag[i] ^ input[length + i];
+                    if (difference != 0)
+                        throw new IllegalArgumentException("Decryption error.");
+                    cipher.update(input, 0, length, output, 0);
+                }
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        private void authenticate(byte[] ciphertext, int length) throws GeneralSecurityException {
+            mac.update(header);
+            mac.update(ciphertext, 0, length);
+            mac.doFinal(tag, 0);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.oviron.yar;
+
+/**
+ * Receiver of the outcome and latency of every RSA operation, see {@link Yar#setMetrics(YarMetrics)}.
+ * <p/>
+ * An operation is recorded by the thread that performed it, right after it, so implementations must be
+ * thread-safe and cheap. The latency covers the encoding and the RSA primitive of an operation, the hashing
+ * of the message is not included as it depends on where the message comes from. An operation fails when it
+ * throws, or when a verification finds the signature invalid. Decryptions of an RSAES-PKCS1-v1_5 ciphertext
+ * with an invalid padding succeed, see {@link YarCipher}, telling them apart would reintroduce the padding oracle.
+ * <p/>
+ * The default {@link #NONE} records nothing, and with it the operations do not even read the clock.
+ *
+ * @author Oviron
+ */
+public interface YarMetrics {
+    /**
+     * Metrics recording nothing.
+     */
+    YarMetrics NONE = new YarMetrics() {
+        @Override
+        public void record(Operation operation, int keyLength, HashMethod hashMethod, long nanos, boolean success) {
+        }
+    };
+
+    enum Operation {
+        SIGN,
+        VERIFY,
+        ENCRYPT,
+        DECRYPT,
+        KEYGEN
+    }
+
+    /**
+     * Records one operation.
+     *
+     * @param operation  kind of the operation
+     * @param keyLength  length in bits of the RSA modulus
+     * @param hashMethod hash function of a signature or of an OAEP encryption, null for other operations
+     * @param nanos      latency in nanoseconds
+     * @param success    whether the operation succeeded
+     */
+    void record(Operation operation, int keyLength, HashMethod hashMethod, long nanos, boolean success);
+}
@@ -0,0 +1,31 @@
+package com.oviron.yar;
+
+import java.util.List;
+
+/**
+ * Management interface of {@link YarMetricsRecorder}, registered as an MXBean so that generic JMX
+ * clients see the statistics as open data.
+ *
+ * @author Oviron
+ */
+public interface YarMetricsMXBean {
+    /**
+     * @return statistics of every operation, key length and hash method recorded since the last reset
+     */
+    List<YarOperationStatistics> getStatistics();
+
+    /**
+     * @return number of operations recorded since the last reset
+     */
+    long getOperationCount();
+
+    /**
+     * @return number of failed operations recorded since the last reset
+     */
+    long getFailureCount();
+
+    /**
+     * Discards the statistics recorded so far.
+     */
+    void reset();
+}
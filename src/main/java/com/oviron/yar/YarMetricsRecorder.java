@@ -0,0 +1,208 @@
+package com.oviron.yar;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lock-free {@link YarMetrics} keeping counts, failures and latency histograms per operation,
+ * key length and hash method, published through JMX.
+ * <p/>
+ * Recording an operation takes a scan of the few key lengths seen so far and a handful of atomic
+ * increments, and allocates nothing once the operation, key length and hash method have been seen.
+ * New key lengths and series are added by compare-and-set, so threads never block each other.
+ * <pre>
+ *     YarMetricsRecorder recorder = new YarMetricsRecorder();
+ *     recorder.register();
+ *     Yar.setMetrics(recorder);
+ * </pre>
+ *
+ * @author Oviron
+ */
+public class YarMetricsRecorder implements YarMetrics, YarMetricsMXBean {
+    /**
+     * Object name under which {@link #register()} registers the recorder.
+     */
+    public static final String OBJECT_NAME = "com.oviron.yar:type=Metrics";
+
+    /**
+     * Number of latency buckets, the last one counts everything from about three days on.
+     */
+    static final int BUCKETS = 40;
+
+    private static final int HASH_SLOTS = HashMethod.values().length + 1;
+    private static final int SLOTS = Operation.values().length * HASH_SLOTS;
+
+    private final AtomicReference<Row[]> rows = new AtomicReference<>(new Row[0]);
+
+    @Override
+    public void record(Operation operation, int keyLength, HashMethod hashMethod, long nanos, boolean success) {
+        series(operation, keyLength, hashMethod).add(nanos, success);
+    }
+
+    @Override
+    public List<YarOperationStatistics> getStatistics() {
+        List<YarOperationStatistics> statistics = new ArrayList<>();
+        for (Row row : rows.get())
+            for (int slot = 0; slot < SLOTS; slot++) {
+                Series series = row.series.get(slot);
+                if (series != null)
+                    statistics.add(series.snapshot());
+            }
+        return statistics;
+    }
+
+    /**
+     * @param operation  kind of the operations
+     * @param keyLength  length in bits of the RSA modulus
+     * @param hashMethod hash function, null for operations without one
+     * @return statistics of the operations, or null if none was recorded since the last reset
+     */
+    public YarOperationStatistics getStatistics(Operation operation, int keyLength, HashMethod hashMethod) {
+        for (Row row : rows.get())
+            if (row.keyLength == keyLength) {
+                Series series = row.series.get(slot(operation, hashMethod));
+                return series == null ? null : series.snapshot();
+            }
+        return null;
+    }
+
+    @Override
+    public long getOperationCount() {
+        long count = 0;
+        for (YarOperationStatistics statistics : getStatistics())
+            count += statistics.getCount();
+        return count;
+    }
+
+    @Override
+    public long getFailureCount() {
+        long failures = 0;
+        for (YarOperationStatistics statistics : getStatistics())
+            failures += statistics.getFailures();
+        return failures;
+    }
+
+    /**
+     * Discards the statistics recorded so far. Operations recorded concurrently with the reset may be lost.
+     */
+    @Override
+    public void reset() {
+        rows.set(new Row[0]);
+    }
+
+    /**
+     * Registers the recorder with the platform MBean server under {@link #OBJECT_NAME}.
+     */
+    public void register() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Unregisters the recorder from the platform MBean server.
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int slot(Operation operation, HashMethod hashMethod) {
+        return operation.ordinal() * HASH_SLOTS + (hashMethod == null ? 0 : hashMethod.ordinal() + 1);
+    }
+
+    private Series series(Operation operation, int keyLength, HashMethod hashMethod) {
+        AtomicReferenceArray<Series> row = row(keyLength).series;
+        int slot = slot(operation, hashMethod);
+        Series series = row.get(slot);
+        if (series == null) {
+            row.compareAndSet(slot, null, new Series(operation, keyLength, hashMethod));
+            series = row.get(slot);
+        }
+        return series;
+    }
+
+    private Row row(int keyLength) {
+        while (true) {
+            Row[] current = rows.get();
+            for (Row row : current)
+                if (row.keyLength == keyLength)
+                    return row;
+
+            Row[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = new Row(keyLength);
+            if (rows.compareAndSet(current, grown))
+                return grown[current.length];
+        }
+    }
+
+    /**
+     * @return index of the histogram bucket of the latency, see {@link YarOperationStatistics}
+     */
+    static int bucket(long nanos) {
+        return Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos >>> 10));
+    }
+
+    /**
+     * Series of every operation and hash method with one key length.
+     */
+    private static class Row {
+        final int keyLength;
+        final AtomicReferenceArray<Series> series = new AtomicReferenceArray<>(SLOTS);
+
+        Row(int keyLength) {
+            this.keyLength = keyLength;
+        }
+    }
+
+    private static class Series {
+        final Operation operation;
+        final int keyLength;
+        final HashMethod hashMethod;
+        final AtomicLong count = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+        final AtomicLong totalNanos = new AtomicLong();
+        final AtomicLong maxNanos = new AtomicLong();
+        final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        Series(Operation operation, int keyLength, HashMethod hashMethod) {
+            this.operation = operation;
+            this.keyLength = keyLength;
+            this.hashMethod = hashMethod;
+        }
+
+        void add(long nanos, boolean success) {
+            count.incrementAndGet();
+            if (!success)
+                failures.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            histogram.incrementAndGet(bucket(nanos));
+
+            long max;
+            while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+                //Retry against the maximum set by another thread.
+            }
+        }
+
+        YarOperationStatistics snapshot() {
+            long[] buckets = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++)
+                buckets[i] = histogram.get(i);
+            return new YarOperationStatistics(operation, keyLength, hashMethod, count.get(), failures.get(),
+                    totalNanos.get(), maxNanos.get(), buckets);
+        }
+    }
+}
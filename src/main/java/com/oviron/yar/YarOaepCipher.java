@@ -0,0 +1,298 @@
+package com.oviron.yar;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+import static com.oviron.yar.Encodings.*;
+import static com.oviron.yar.Primitives.*;
+
+/**
+ * RSAES-OAEP encryption or decryption bound to one key and one hash function.
+ * <p/>
+ * A cipher created with a public key encrypts, a cipher created with a private key decrypts.
+ * The hash function is used both for the label hash and for the mask generation function MGF1,
+ * the label L is the empty string. The data block and the seed are built and masked in place
+ * in the reused encoded message buffer, with the digest of the cipher.
+ * <p/>
+ * Decryption checks all of the encoded message without branches on the decrypted octets and
+ * reports any failure with the same error, so that it can not be told which check failed.
+ * Instances are not thread-safe, use a separate cipher per thread.
+ *
+ * @author Oviron
+ */
+public class YarOaepCipher {
+    private static final SecureRandom defaultRandom = new SecureRandom();
+
+    private final RSAKey key;
+    private final HashMethod hashMethod;
+    private final PublicKeyEngine publicEngine;
+    private final PrivateKeyEngine privateEngine;
+    private final SecureRandom random;
+    private final byte[] seed;
+    private final Mgf1 mgf;
+    private final byte[] lHash;
+    private final int hLen;
+    private final int k;
+    private final byte[] EM;
+
+    /**
+     * @param publicKey  recipient’s RSA public key
+     * @param hashMethod hash function
+     */
+    public YarOaepCipher(RSAPublicKey publicKey, HashMethod hashMethod) {
+        this(publicKey, hashMethod, defaultRandom);
+    }
+
+    /**
+     * @param publicKey  recipient’s RSA public key
+     * @param hashMethod hash function
+     * @param random     source of the seeds
+     */
+    public YarOaepCipher(RSAPublicKey publicKey, HashMethod hashMethod, SecureRandom random) {
+        if (random == null)
+            throw new IllegalArgumentException("Random is null.");
+        this.key = publicKey;
+        this.hashMethod = hashMethod;
+        this.publicEngine = new PublicKeyEngine(publicKey);
+        this.privateEngine = null;
+        this.random = random;
+        MessageDigest md = digest(hashMethod);
+        this.mgf = new Mgf1(md);
+        this.lHash = md.digest();
+        this.hLen = lHash.length;
+        this.seed = new byte[hLen];
+        this.k = modulusLength(publicKey);
+        this.EM = new byte[k];
+    }
+
+    /**
+     * @param privateKey recipient’s RSA private key
+     * @param hashMethod hash function
+     */
+    public YarOaepCipher(RSAPrivateKey privateKey, HashMethod hashMethod) {
+        this.key = privateKey;
+        this.hashMethod = hashMethod;
+        this.publicEngine = null;
+        this.privateEngine = new PrivateKeyEngine(privateKey);
+        this.random = null;
+        this.seed = null;
+        MessageDigest md = digest(hashMethod);
+        this.mgf = new Mgf1(md);
+        this.lHash = md.digest();
+        this.hLen = lHash.length;
+        this.k = modulusLength(privateKey);
+        this.EM = new byte[k];
+    }
+
+    /**
+     * RSAES-OAEP-ENCRYPT implementation
+     *
+     * @param message message to be encrypted, an octet sequence of length mLen,
+     *                where mLen <= k – 2hLen – 2
+     * @return ciphertext, an octet sequence of length k
+     */
+    public byte[] encrypt(byte[] message) {
+        byte[] ciphertext = new byte[k];
+        encrypt(message, 0, message.length, ciphertext, 0);
+        return ciphertext;
+    }
+
+    /**
+     * RSAES-OAEP-ENCRYPT of a part of an array, writing the ciphertext into a part of another one.
+     *
+     * @param message          array containing the message
+     * @param messageOffset    offset of the message in the array
+     * @param messageLength    mLen, the length of the message, where mLen <= k – 2hLen – 2
+     * @param ciphertext       array receiving the ciphertext
+     * @param ciphertextOffset offset of the ciphertext in the array
+     * @return k, the length in octets of the ciphertext
+     */
+    public int encrypt(byte[] message, int messageOffset, int messageLength, byte[] ciphertext, int ciphertextOffset) {
+        if (publicEngine == null)
+            throw new IllegalStateException("Cipher is not initialized for encryption.");
+
+        //1. Length checking:
+        //b. If mLen > k – 2hLen – 2, output “message too long” and stop.
+        if (messageLength > k - 2 * hLen - 2)
+            throw new IllegalArgumentException("Message too long.");
+
+        if (ciphertext.length - ciphertextOffset < k)
+            throw new IllegalArgumentException("Output buffer too short.");
+
+        //2. EME-OAEP encoding:
+        //b. Generate an octet string PS consisting of k – mLen – 2hLen – 2 zero octets.
+        //c. Concatenate lHash, PS, a single octet with hexadecimal value 0x01, and the
+        //message M to form a data block DB of length k – hLen – 1 octets as
+        //        DB = lHash || PS || 0x01 || M
+        //DB is built in place at the tail of EM, every octet of the reused buffer is rewritten.
+        int dbLen = k - hLen - 1;
+        System.arraycopy(lHash, 0, EM, hLen + 1, hLen);
+        Arrays.fill(EM, 2 * hLen + 1, k - messageLength - 1, (byte) 0);
+        EM[k - messageLength - 1] = 0x01;
+        System.arraycopy(message, messageOffset, EM, k - messageLength, messageLength);
+
+        //d. Generate a random octet string seed of length hLen.
+        //SecureRandom fills whole arrays only, the seed goes through its own reused one.
+        random.nextBytes(seed);
+        System.arraycopy(seed, 0, EM, 1, hLen);
+
+        //e. Let dbMask = MGF(seed, k – hLen – 1).
+        //f. Let maskedDB = DB ⊕ dbMask.
+        mgf.mask(EM, 1, hLen, EM, hLen + 1, dbLen);
+
+        //g. Let seedMask = MGF(maskedDB, hLen).
+        //h. Let maskedSeed = seed ⊕ seedMask.
+        mgf.mask(EM, hLen + 1, dbLen, EM, 1, hLen);
+
+        //i. Concatenate a single octet with hexadecimal value 0x00, maskedSeed, and
+        //maskedDB to form an encoded message EM of length k octets as
+        //        EM = 0x00 || maskedSeed || maskedDB
+        EM[0] = 0x00;
+
+        //3. RSA encryption:
+        //a. Convert the encoded message EM to an integer message representative m.
+        //b. Apply the RSAEP encryption primitive to the RSA public key and
+        //the message representative m to produce an integer ciphertext representative c.
+        //c. Convert the ciphertext representative c to a ciphertext C of length k octets.
+        //4. Output the ciphertext C.
+        long start = Metrics.start();
+        boolean success = false;
+        try {
+            I2OSP(publicEngine.RSAEP(OS2IP(EM)), k, ciphertext, ciphertextOffset);
+            success = true;
+        } finally {
+            Metrics.record(YarMetrics.Operation.ENCRYPT, key, hashMethod, Metrics.stop(start), success);
+        }
+        return k;
+    }
+
+    /**
+     * RSAES-OAEP-DECRYPT implementation
+     *
+     * @param ciphertext ciphertext to be decrypted, an octet sequence of length k, where k is
+     *                   the length in octets of the RSA modulus n
+     * @return message, an octet sequence of length at most k – 2hLen – 2
+     */
+    public byte[] decrypt(byte[] ciphertext) {
+        int offset = decode(ciphertext, 0, ciphertext.length);
+
+        //4. Output the message M.
+        return Arrays.copyOfRange(EM, offset, k);
+    }
+
+    /**
+     * RSAES-OAEP-DECRYPT of a part of an array, writing the message into a part of another one.
+     *
+     * @param ciphertext       array containing the ciphertext
+     * @param ciphertextOffset offset of the ciphertext in the array
+     * @param ciphertextLength length of the ciphertext, k
+     * @param message          array receiving the message
+     * @param messageOffset    offset of the message in the array
+     * @return length of the message, at most k – 2hLen – 2
+     */
+    public int decrypt(byte[] ciphertext, int ciphertextOffset, int ciphertextLength, byte[] message, int messageOffset) {
+        int offset = decode(ciphertext, ciphertextOffset, ciphertextLength);
+        int mLen = k - offset;
+        if (message.length - messageOffset < mLen)
+            throw new IllegalArgumentException("Output buffer too short.");
+
+        //4. Output the message M.
+        System.arraycopy(EM, offset, message, messageOffset, mLen);
+        return mLen;
+    }
+
+    /**
+     * Decrypts the ciphertext held in a part of an array into EM, recording the operation.
+     *
+     * @return offset of the message M in EM
+     */
+    private int decode(byte[] ciphertext, int offset, int length) {
+        long start = Metrics.start();
+        boolean success = false;
+        try {
+            int messageOffset = decodeMessage(ciphertext, offset, length);
+            success = true;
+            return messageOffset;
+        } finally {
+            Metrics.record(YarMetrics.Operation.DECRYPT, key, hashMethod, Metrics.stop(start), success);
+        }
+    }
+
+    /**
+     * Decrypts the ciphertext held in a part of an array into EM.
+     *
+     * @return offset of the message M in EM
+     */
+    private int decodeMessage(byte[] ciphertext, int offset, int length) {
+        if (privateEngine == null)
+            throw new IllegalStateException("Cipher is not initialized for decryption.");
+
+        //1. Length checking:
+        //b. If the length of the ciphertext C is not k octets, output “decryption error” and stop.
+        //c. If k < 2hLen + 2, output “decryption error” and stop.
+        if (length != k || k < 2 * hLen + 2)
+            throw new IllegalArgumentException("Decryption error.");
+
+        //2. RSA decryption:
+        //a. Convert the ciphertext C to an integer ciphertext representative c.
+        //b. Apply the RSADP decryption primitive to the RSA private key and the
+        //ciphertext representative c to produce an integer message representative m.
+        BigInteger m;
+        try {
+            m = privateEngine.RSADP(OS2IP(ciphertext, offset, length));
+        } catch (IllegalArgumentException e) {
+            //If RSADP outputs “ciphertext representative out of range” (meaning that c >= n),
+            //output “decryption error” and stop.
+            throw new IllegalArgumentException("Decryption error.");
+        }
+
+        //c. Convert the message representative m to an encoded message EM of length k octets.
+        I2OSP(m, k, EM, 0);
+
+        //3. EME-OAEP decoding:
+        //b. Separate the encoded message EM into a single octet Y, an octet string
+        //maskedSeed of length hLen, and an octet string maskedDB of length k – hLen – 1 as
+        //        EM = Y || maskedSeed || maskedDB
+        //c. Let seedMask = MGF(maskedDB, hLen).
+        //d. Let seed = maskedSeed ⊕ seedMask.
+        int dbLen = k - hLen - 1;
+        mgf.mask(EM, hLen + 1, dbLen, EM, 1, hLen);
+
+        //e. Let dbMask = MGF(seed, k – hLen – 1).
+        //f. Let DB = maskedDB ⊕ dbMask.
+        mgf.mask(EM, 1, hLen, EM, hLen + 1, dbLen);
+
+        //g. Separate DB into an octet string lHash’ of length hLen, a (possibly empty)
+        //padding string PS consisting of octets with hexadecimal value 0x00, and a message M as
+        //        DB = lHash’ || PS || 0x01 || M
+        //If there is no octet with hexadecimal value 0x01 to separate PS from M, if lHash
+        //does not equal lHash’, or if Y is nonzero, output “decryption error” and stop.
+        //Every octet is visited and no branch depends on its value before the single check.
+        int invalid = EM[0] & 0xff;
+        for (int i = 0; i < hLen; i++)
+            invalid |= (EM[hLen + 1 + i] ^ lHash[i]) & 0xff;
+
+        int found = 0;
+        int separatorIndex = 0;
+        for (int i = 2 * hLen + 1; i < k; i++) {
+            int octet = EM[i] & 0xff;
+            int zero = (octet - 1) >>> 31;
+            int one = ((octet ^ 0x01) - 1) >>> 31;
+            separatorIndex |= -(one & ~found) & i;
+            //An octet other than 0x00 before the separator is not part of PS.
+            invalid |= ~found & ~zero & ~one & 1;
+            found |= one;
+        }
+        invalid |= found ^ 1;
+
+        if (invalid != 0)
+            throw new IllegalArgumentException("Decryption error.");
+
+        return separatorIndex + 1;
+    }
+}
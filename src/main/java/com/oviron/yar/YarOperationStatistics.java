@@ -0,0 +1,119 @@
+package com.oviron.yar;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Snapshot of the statistics of one operation with one key length and hash method, see {@link YarMetricsRecorder}.
+ * <p/>
+ * Latencies are kept in a histogram of power of two buckets: bucket 0 counts latencies below
+ * 1024 ns and bucket i counts latencies from 2^(i + 9) ns up to 2^(i + 10) ns. Percentiles are
+ * the upper bound of the bucket they fall into, so they are exact within a factor of two.
+ *
+ * @author Oviron
+ */
+public class YarOperationStatistics {
+    private final YarMetrics.Operation operation;
+    private final int keyLength;
+    private final HashMethod hashMethod;
+    private final long count;
+    private final long failures;
+    private final long totalNanos;
+    private final long maxNanos;
+    private final long[] histogram;
+
+    @ConstructorProperties({"operation", "keyLength", "hashMethod", "count", "failures", "totalNanos",
+            "maxNanos", "histogram"})
+    public YarOperationStatistics(YarMetrics.Operation operation, int keyLength, HashMethod hashMethod, long count,
+                                  long failures, long totalNanos, long maxNanos, long[] histogram) {
+        this.operation = operation;
+        this.keyLength = keyLength;
+        this.hashMethod = hashMethod;
+        this.count = count;
+        this.failures = failures;
+        this.totalNanos = totalNanos;
+        this.maxNanos = maxNanos;
+        this.histogram = histogram.clone();
+    }
+
+    public YarMetrics.Operation getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return length in bits of the RSA modulus
+     */
+    public int getKeyLength() {
+        return keyLength;
+    }
+
+    /**
+     * @return hash function, null for operations without one
+     */
+    public HashMethod getHashMethod() {
+        return hashMethod;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getFailures() {
+        return failures;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getMeanNanos() {
+        return count == 0 ? 0 : totalNanos / count;
+    }
+
+    public long getMedianNanos() {
+        return percentileNanos(0.5);
+    }
+
+    public long getPercentile99Nanos() {
+        return percentileNanos(0.99);
+    }
+
+    /**
+     * @return operation counts of the latency buckets
+     */
+    public long[] getHistogram() {
+        return histogram.clone();
+    }
+
+    /**
+     * @param p fraction of the operations, between 0 and 1
+     * @return latency not exceeded by the fraction p of the operations, within a factor of two
+     */
+    public long percentileNanos(double p) {
+        if (p < 0 || p > 1)
+            throw new IllegalArgumentException("Percentile " + p + " is outside [0, 1].");
+
+        long total = 0;
+        for (long bucket : histogram)
+            total += bucket;
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank)
+                return Math.min(maxNanos, 1L << (i + 10));
+        }
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return operation + "/" + keyLength + (hashMethod == null ? "" : "/" + hashMethod)
+                + ": count " + count + ", failures " + failures + ", mean " + getMeanNanos() + " ns, median "
+                + getMedianNanos() + " ns, p99 " + getPercentile99Nanos() + " ns, max " + maxNanos + " ns";
+    }
+}
@@ -0,0 +1,280 @@
+package com.oviron.yar;
+
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.interfaces.RSAPrivateKey;
+import java.util.Arrays;
+
+import static com.oviron.yar.Encodings.*;
+import static com.oviron.yar.Primitives.*;
+
+/**
+ * RSASSA-PSS signature generation bound to one private key, hash method and salt length.
+ * <p/>
+ * The hash function is used both for the message and for the mask generation function MGF1.
+ * The encoded message is built and masked in place in a reused buffer of k octets with the
+ * single message digest of the signer, so a signature costs one RSASP1, the hashes of the
+ * message and of M’ and the few hashes of MGF1.
+ * <p/>
+ * Messages are passed like with {@link YarSigner}, at once or in parts to the update methods
+ * followed by {@link #sign()}. Instances are not thread-safe, use a separate signer per thread.
+ *
+ * @author Oviron
+ */
+public class YarPssSigner {
+    private static final SecureRandom defaultRandom = new SecureRandom();
+
+    /**
+     * The eight initial zero octets of M’.
+     */
+    private static final byte[] ZEROS = new byte[8];
+
+    private final RSAPrivateKey privateKey;
+    private final HashMethod hashMethod;
+    private final PrivateKeyEngine engine;
+    private final SecureRandom random;
+    private final MessageDigest md;
+    private final Mgf1 mgf;
+    private final int hLen;
+    private final int sLen;
+    private final int emBits;
+    private final int emLen;
+    private final int k;
+    private final byte[] salt;
+    private final byte[] EM;
+
+    /**
+     * Creates a signer with salts as long as the hash function output.
+     *
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     */
+    public YarPssSigner(RSAPrivateKey privateKey, HashMethod hashMethod) {
+        this(privateKey, hashMethod, -1, defaultRandom);
+    }
+
+    /**
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @param saltLength sLen, intended length in octets of the salt, 0 for deterministic signatures
+     */
+    public YarPssSigner(RSAPrivateKey privateKey, HashMethod hashMethod, int saltLength) {
+        this(privateKey, hashMethod, saltLength, defaultRandom);
+    }
+
+    /**
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @param saltLength sLen, intended length in octets of the salt, 0 for deterministic signatures,
+     *                   -1 for the length of the hash function output
+     * @param random     source of the salts
+     */
+    public YarPssSigner(RSAPrivateKey privateKey, HashMethod hashMethod, int saltLength, SecureRandom random) {
+        if (random == null)
+            throw new IllegalArgumentException("Random is null.");
+        this.privateKey = privateKey;
+        this.hashMethod = hashMethod;
+        this.engine = new PrivateKeyEngine(privateKey);
+        this.random = random;
+        this.md = digest(hashMethod);
+        this.mgf = new Mgf1(md);
+        this.hLen = md.getDigestLength();
+        this.sLen = saltLength == -1 ? hLen : saltLength;
+        if (sLen < 0)
+            throw new IllegalArgumentException("Salt length " + saltLength + " is negative.");
+
+        //The intended length in bits of the encoded message is modBits – 1,
+        //where modBits is the length in bits of the RSA modulus n.
+        this.emBits = privateKey.getModulus().bitLength() - 1;
+        this.emLen = (emBits + 7) / 8;
+        this.k = modulusLength(privateKey);
+
+        //3. If emLen < hLen + sLen + 2, output “encoding error” and stop.
+        if (emLen < hLen + sLen + 2)
+            throw new IllegalArgumentException("RSA modulus too short.");
+
+        this.salt = new byte[sLen];
+        this.EM = new byte[k];
+    }
+
+    public RSAPrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    public HashMethod getHashMethod() {
+        return hashMethod;
+    }
+
+    public int getSaltLength() {
+        return sLen;
+    }
+
+    /**
+     * Adds a part of the message to be signed.
+     *
+     * @param data part of the message
+     */
+    public void update(byte[] data) {
+        md.update(data);
+    }
+
+    /**
+     * Adds a part of the message to be signed.
+     *
+     * @param data   array containing a part of the message
+     * @param offset offset of the part in the array
+     * @param length length of the part
+     */
+    public void update(byte[] data, int offset, int length) {
+        md.update(data, offset, length);
+    }
+
+    /**
+     * Adds the remaining octets of the buffer, which may be a direct one, to the message to be signed.
+     *
+     * @param data part of the message, consumed up to its limit
+     */
+    public void update(ByteBuffer data) {
+        md.update(data);
+    }
+
+    /**
+     * Discards the message parts added so far.
+     */
+    public void reset() {
+        md.reset();
+    }
+
+    /**
+     * Signs the message parts added so far.
+     *
+     * @return signature, an octet sequence of length k
+     */
+    public byte[] sign() {
+        byte[] signature = new byte[k];
+        signHashed(signature, 0);
+        return signature;
+    }
+
+    /**
+     * RSASSA-PSS-SIGN implementation
+     *
+     * @param message message to be signed, an octet sequence
+     * @return signature, an octet sequence of length k,
+     *         where k is the length in octets of the RSA modulus n
+     */
+    public byte[] sign(byte[] message) {
+        md.update(message);
+        return sign();
+    }
+
+    /**
+     * Signs a part of an array and writes the signature into a part of another one.
+     *
+     * @param message         array containing the message to be signed
+     * @param messageOffset   offset of the message in the array
+     * @param messageLength   length of the message
+     * @param signature       array receiving the signature
+     * @param signatureOffset offset of the signature in the array
+     * @return k, the length in octets of the signature
+     */
+    public int sign(byte[] message, int messageOffset, int messageLength, byte[] signature, int signatureOffset) {
+        if (signature.length - signatureOffset < k)
+            throw new IllegalArgumentException("Output buffer too short.");
+
+        md.update(message, messageOffset, messageLength);
+        signHashed(signature, signatureOffset);
+        return k;
+    }
+
+    /**
+     * RSASSA-PSS-SIGN of a message hashed elsewhere.
+     * The message parts added by update, if any, are left untouched.
+     *
+     * @param hash hash value of the message computed with the signer's hash function
+     * @return signature, an octet sequence of length k
+     */
+    public byte[] signDigest(byte[] hash) {
+        checkHashLength(hash, md);
+
+        //The hash value goes where the hash of the message would be written, see signHashed.
+        System.arraycopy(hash, 0, EM, k - hLen - 1, hLen);
+        byte[] signature = new byte[k];
+        signEncoded(signature, 0);
+        return signature;
+    }
+
+    /**
+     * Signs the message already fed to the message digest.
+     */
+    private void signHashed(byte[] signature, int offset) {
+        //EMSA-PSS encoding:
+        //2. Let mHash = Hash(M), an octet string of length hLen.
+        //mHash is held where H goes, it is hashed into M’ before H overwrites it.
+        try {
+            md.digest(EM, k - hLen - 1, hLen);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        signEncoded(signature, offset);
+    }
+
+    /**
+     * Completes the encoding of the message whose hash value mHash is held in place of H in EM and signs it.
+     */
+    private void signEncoded(byte[] signature, int offset) {
+        //EM is right-aligned in the buffer of k octets, preceded by a zero octet if emLen < k.
+        int base = k - emLen;
+        int dbLen = emLen - hLen - 1;
+        int hOffset = base + dbLen;
+
+        //4. Generate a random octet string salt of length sLen; if sLen = 0, then salt is the empty string.
+        if (sLen > 0)
+            random.nextBytes(salt);
+
+        //5. Let M’ = (0x)00 00 00 00 00 00 00 00 || mHash || salt;
+        //M’ is an octet string of length 8 + hLen + sLen with eight initial zero octets.
+        //6. Let H = Hash(M’), an octet string of length hLen.
+        md.update(ZEROS);
+        md.update(EM, hOffset, hLen);
+        md.update(salt);
+        try {
+            md.digest(EM, hOffset, hLen);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+
+        //7. Generate an octet string PS consisting of emLen – sLen – hLen – 2 zero octets.
+        //The length of PS may be 0.
+        //8. Let DB = PS || 0x01 || salt; DB is an octet string of length emLen – hLen – 1.
+        Arrays.fill(EM, 0, hOffset - sLen - 1, (byte) 0);
+        EM[hOffset - sLen - 1] = 0x01;
+        System.arraycopy(salt, 0, EM, hOffset - sLen, sLen);
+
+        //9. Let dbMask = MGF(H, emLen – hLen – 1).
+        //10. Let maskedDB = DB ⊕ dbMask.
+        mgf.mask(EM, hOffset, hLen, EM, base, dbLen);
+
+        //11. Set the leftmost 8emLen – emBits bits of the leftmost octet in maskedDB to zero.
+        EM[base] &= 0xff >>> (8 * emLen - emBits);
+
+        //12. Let EM = maskedDB || H || 0xbc.
+        EM[k - 1] = (byte) 0xbc;
+
+        //2. RSA signature:
+        //a. Convert the encoded message EM to an integer message representative m.
+        //b. Apply the RSASP1 signature primitive to the RSA private key and
+        //the message representative m to produce an integer signature representative s.
+        //c. Convert the signature representative s to a signature S of length k octets.
+        long start = Metrics.start();
+        boolean success = false;
+        try {
+            I2OSP(engine.RSADP(OS2IP(EM)), k, signature, offset);
+            success = true;
+        } finally {
+            Metrics.record(YarMetrics.Operation.SIGN, privateKey, hashMethod, Metrics.stop(start), success);
+        }
+    }
+}
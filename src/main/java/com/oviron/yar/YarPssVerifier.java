@@ -0,0 +1,293 @@
+package com.oviron.yar;
+
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.interfaces.RSAPublicKey;
+
+import static com.oviron.yar.Encodings.*;
+import static com.oviron.yar.Primitives.*;
+
+/**
+ * RSASSA-PSS signature verification bound to one public key, hash method and salt length.
+ * <p/>
+ * The hash function is used both for the message and for the mask generation function MGF1.
+ * The encoded message is recovered and unmasked in place in a reused buffer of k octets with
+ * the single message digest of the verifier.
+ * <p/>
+ * Messages are passed like with {@link YarVerifier}, at once or in parts to the update methods
+ * followed by {@link #verify(byte[])}. Instances are not thread-safe, use a separate verifier per thread.
+ *
+ * @author Oviron
+ */
+public class YarPssVerifier {
+    /**
+     * The eight initial zero octets of M’.
+     */
+    private static final byte[] ZEROS = new byte[8];
+
+    private final RSAPublicKey publicKey;
+    private final HashMethod hashMethod;
+    private final PublicKeyEngine engine;
+    private final MessageDigest md;
+    private final Mgf1 mgf;
+    private final int hLen;
+    private final int sLen;
+    private final int emBits;
+    private final int emLen;
+    private final int k;
+    private final byte[] mHash;
+    private final byte[] EM;
+
+    /**
+     * Creates a verifier of signatures with salts as long as the hash function output.
+     *
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     */
+    public YarPssVerifier(RSAPublicKey publicKey, HashMethod hashMethod) {
+        this(publicKey, hashMethod, -1);
+    }
+
+    /**
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @param saltLength sLen, length in octets of the salt, -1 for the length of the hash function output
+     */
+    public YarPssVerifier(RSAPublicKey publicKey, HashMethod hashMethod, int saltLength) {
+        this.publicKey = publicKey;
+        this.hashMethod = hashMethod;
+        this.engine = new PublicKeyEngine(publicKey);
+        this.md = digest(hashMethod);
+        this.mgf = new Mgf1(md);
+        this.hLen = md.getDigestLength();
+        this.sLen = saltLength == -1 ? hLen : saltLength;
+        if (sLen < 0)
+            throw new IllegalArgumentException("Salt length " + saltLength + " is negative.");
+
+        this.emBits = publicKey.getModulus().bitLength() - 1;
+        this.emLen = (emBits + 7) / 8;
+        this.k = modulusLength(publicKey);
+
+        //3. If emLen < hLen + sLen + 2, output “inconsistent” and stop.
+        if (emLen < hLen + sLen + 2)
+            throw new IllegalArgumentException("RSA modulus too short.");
+
+        this.mHash = new byte[hLen];
+        this.EM = new byte[k];
+    }
+
+    public RSAPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public HashMethod getHashMethod() {
+        return hashMethod;
+    }
+
+    public int getSaltLength() {
+        return sLen;
+    }
+
+    /**
+     * Adds a part of the message whose signature is to be verified.
+     *
+     * @param data part of the message
+     */
+    public void update(byte[] data) {
+        md.update(data);
+    }
+
+    /**
+     * Adds a part of the message whose signature is to be verified.
+     *
+     * @param data   array containing a part of the message
+     * @param offset offset of the part in the array
+     * @param length length of the part
+     */
+    public void update(byte[] data, int offset, int length) {
+        md.update(data, offset, length);
+    }
+
+    /**
+     * Adds the remaining octets of the buffer, which may be a direct one, to the message
+     * whose signature is to be verified.
+     *
+     * @param data part of the message, consumed up to its limit
+     */
+    public void update(ByteBuffer data) {
+        md.update(data);
+    }
+
+    /**
+     * Discards the message parts added so far.
+     */
+    public void reset() {
+        md.reset();
+    }
+
+    /**
+     * Verifies the signature of the message parts added so far.
+     *
+     * @param signature signature to be verified, an octet sequence of length k
+     * @return signature authenticity
+     */
+    public boolean verify(byte[] signature) {
+        return verify(signature, 0, signature.length);
+    }
+
+    /**
+     * RSASSA-PSS-VERIFY implementation
+     *
+     * @param message   message whose signature is to be verified, an octet sequence
+     * @param signature signature to be verified, an octet sequence of length k, where k is the
+     *                  length in octets of the RSA modulus n
+     * @return signature authenticity
+     */
+    public boolean verify(byte[] message, byte[] signature) {
+        md.update(message);
+        return verify(signature, 0, signature.length);
+    }
+
+    /**
+     * Verifies the signature of a part of an array, with the signature read from a part of another one.
+     *
+     * @param message         array containing the message
+     * @param messageOffset   offset of the message in the array
+     * @param messageLength   length of the message
+     * @param signature       array containing the signature
+     * @param signatureOffset offset of the signature in the array
+     * @param signatureLength length of the signature
+     * @return signature authenticity
+     */
+    public boolean verify(byte[] message, int messageOffset, int messageLength,
+                          byte[] signature, int signatureOffset, int signatureLength) {
+        md.update(message, messageOffset, messageLength);
+        return verify(signature, signatureOffset, signatureLength);
+    }
+
+    /**
+     * RSASSA-PSS-VERIFY of a message hashed elsewhere.
+     * The message parts added by update, if any, are left untouched.
+     *
+     * @param hash      hash value of the message computed with the verifier's hash function
+     * @param signature signature to be verified, an octet sequence of length k
+     * @return signature authenticity
+     */
+    public boolean verifyDigest(byte[] hash, byte[] signature) {
+        checkHashLength(hash, md);
+        System.arraycopy(hash, 0, mHash, 0, hLen);
+        return check(signature, 0, signature.length);
+    }
+
+    /**
+     * Verifies the signature of the message already fed to the message digest.
+     * The message digest is left reset whatever the outcome.
+     */
+    private boolean verify(byte[] signature, int offset, int length) {
+        //EMSA-PSS verification:
+        //2. Let mHash = Hash(M), an octet string of length hLen.
+        try {
+            md.digest(mHash, 0, hLen);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+        return check(signature, offset, length);
+    }
+
+    /**
+     * Verifies the signature against mHash.
+     */
+    private boolean check(byte[] signature, int offset, int length) {
+        long start = Metrics.start();
+        boolean valid = recover(signature, offset, length) && matches();
+        Metrics.record(YarMetrics.Operation.VERIFY, publicKey, hashMethod, Metrics.stop(start), valid);
+        return valid;
+    }
+
+    /**
+     * Recovers the encoded message from the signature into EM.
+     *
+     * @return false if the signature is invalid
+     */
+    private boolean recover(byte[] signature, int offset, int length) {
+        //1. Length checking: If the length of the signature S is not k octets,
+        //output “invalid signature” and stop.
+        if (length != k)
+            return false;
+
+        //2. RSA verification:
+        //a. Convert the signature S to an integer signature representative s.
+        //b. Apply the RSAVP1 verification primitive to the RSA public key
+        //and the signature representative s to produce an integer message representative m.
+        //c. Convert the message representative m to an encoded message EM of length
+        //emLen = ⌈(modBits – 1)/8⌉ octets.
+        try {
+            BigInteger m = engine.RSAEP(OS2IP(signature, offset, length));
+            I2OSP(m, k, EM, 0);
+        } catch (IllegalArgumentException e) {
+            //If RSAVP1 outputs “signature representative out of range,” output
+            //“invalid signature” and stop.
+            return false;
+        }
+
+        //If I2OSP outputs “integer too large,” output “invalid signature” and stop.
+        //EM is right-aligned in the buffer of k octets, the octet before it must be zero.
+        return emLen == k || EM[0] == 0;
+    }
+
+    /**
+     * EMSA-PSS-VERIFY of the recovered encoded message EM against mHash.
+     */
+    private boolean matches() {
+        int base = k - emLen;
+        int dbLen = emLen - hLen - 1;
+        int hOffset = base + dbLen;
+        int mask = 0xff >>> (8 * emLen - emBits);
+
+        //4. If the rightmost octet of EM does not have hexadecimal value 0xbc,
+        //output “inconsistent” and stop.
+        //6. If the leftmost 8emLen – emBits bits of the leftmost octet in maskedDB
+        //are not all equal to zero, output “inconsistent” and stop.
+        if (EM[k - 1] != (byte) 0xbc || (EM[base] & 0xff & ~mask) != 0)
+            return false;
+
+        //5. Let maskedDB be the leftmost emLen – hLen – 1 octets of EM, and let H be the next hLen octets.
+        //7. Let dbMask = MGF(H, emLen – hLen – 1).
+        //8. Let DB = maskedDB ⊕ dbMask.
+        mgf.mask(EM, hOffset, hLen, EM, base, dbLen);
+
+        //9. Set the leftmost 8emLen – emBits bits of the leftmost octet in DB to zero.
+        EM[base] &= mask;
+
+        //10. If the emLen – hLen – sLen – 2 leftmost octets of DB are not zero or if the octet
+        //at position emLen – hLen – sLen – 1 does not have hexadecimal value 0x01,
+        //output “inconsistent” and stop.
+        int separator = hOffset - sLen - 1;
+        for (int i = base; i < separator; i++)
+            if (EM[i] != 0)
+                return false;
+        if (EM[separator] != 0x01)
+            return false;
+
+        //11. Let salt be the last sLen octets of DB.
+        //12. Let M’ = (0x)00 00 00 00 00 00 00 00 || mHash || salt;
+        //M’ is an octet string of length 8 + hLen + sLen with eight initial zero octets.
+        //13. Let H’ = Hash(M’), an octet string of length hLen.
+        md.update(ZEROS);
+        md.update(mHash);
+        md.update(EM, separator + 1, sLen);
+        try {
+            md.digest(mHash, 0, hLen);
+        } catch (DigestException e) {
+            throw new IllegalStateException(e);
+        }
+
+        //14. If H = H’, output “consistent.” Otherwise, output “inconsistent.”
+        int difference = 0;
+        for (int i = 0; i < hLen; i++)
+            difference |= EM[hOffset + i] ^ mHash[i];
+        return difference == 0;
+    }
+}
@@ -0,0 +1,289 @@
+package com.oviron.yar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.interfaces.RSAPrivateKey;
+
+import static com.oviron.yar.Encodings.*;
+import static com.oviron.yar.Primitives.*;
+
+/**
+ * RSASSA-PKCS1-V1_5 signature generation bound to one private key and hash method.
+ * <p/>
+ * The modulus length, the message digest and the encoded message with everything
+ * but the hash value are prepared once, so a signature costs one hash and one RSASP1.
+ * The private key components are read once as well, see {@link PrivateKeyEngine}.
+ * <p/>
+ * A message may be passed at once to one of the sign methods or in parts to the update
+ * methods followed by {@link #sign()}, like with {@link java.security.Signature}. A sign
+ * method taking a message is the same as update with it followed by sign(), so it includes
+ * parts passed to update before. Every signature leaves the signer ready for the next message.
+ * Instances are not thread-safe, use a separate signer per thread.
+ *
+ * @author Oviron
+ */
+public class YarSigner {
+    private final RSAPrivateKey privateKey;
+    private final HashMethod hashMethod;
+    private final PrivateKeyEngine engine;
+    private final int k;
+    private final MessageDigest md;
+    private final byte[] EM;
+    private byte[] S;
+
+    /**
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     */
+    public YarSigner(RSAPrivateKey privateKey, HashMethod hashMethod) {
+        this.privateKey = privateKey;
+        this.hashMethod = hashMethod;
+        this.engine = new PrivateKeyEngine(privateKey);
+        this.k = modulusLength(privateKey);
+        this.md = digest(hashMethod);
+
+        try {
+            this.EM = EMSATemplate(k, hashMethod, md.getDigestLength());
+        } catch (IllegalArgumentException e) {
+            //If the encoding operation outputs “intended encoded message length too short”,
+            //output “RSA modulus too short” and stop.
+            throw new IllegalArgumentException("RSA modulus too short.");
+        }
+    }
+
+    public RSAPrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    public HashMethod getHashMethod() {
+        return hashMethod;
+    }
+
+    /**
+     * Adds a part of the message to be signed.
+     *
+     * @param data part of the message
+     */
+    public void update(byte[] data) {
+        md.update(data);
+    }
+
+    /**
+     * Adds a part of the message to be signed.
+     *
+     * @param data   array containing a part of the message
+     * @param offset offset of the part in the array
+     * @param length length of the part
+     */
+    public void update(byte[] data, int offset, int length) {
+        md.update(data, offset, length);
+    }
+
+    /**
+     * Adds the remaining octets of the buffer, which may be a direct one, to the message to be signed.
+     *
+     * @param data part of the message, consumed up to its limit
+     */
+    public void update(ByteBuffer data) {
+        md.update(data);
+    }
+
+    /**
+     * Discards the message parts added so far.
+     */
+    public void reset() {
+        md.reset();
+    }
+
+    /**
+     * Signs the message parts added so far.
+     *
+     * @return signature, an octet sequence of length k
+     */
+    public byte[] sign() {
+        return signHashed();
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN of a message hashed elsewhere.
+     * The message parts added by update, if any, are left untouched.
+     *
+     * @param hash hash value of the message computed with the signer's hash function
+     * @return signature, an octet sequence of length k
+     */
+    public byte[] signDigest(byte[] hash) {
+        checkHashLength(hash, md);
+
+        //1. EMSA-PKCS1-v1_5 encoding with the hash value H given.
+        System.arraycopy(hash, 0, EM, k - hash.length, hash.length);
+
+        return I2OSP(signEncoded(), k);
+    }
+
+    public byte[] sign(String message) {
+        return sign(message.getBytes());
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-SIGN implementation
+     *
+     * @param message message to be signed, an octet sequence
+     * @return signature, an octet sequence of length k,
+     *         where k is the length in octets of the RSA modulus n
+     */
+    public byte[] sign(byte[] message) {
+        md.update(message);
+        return signHashed();
+    }
+
+    /**
+     * Signs the remaining octets of the buffer, which may be a direct one.
+     *
+     * @param message message to be signed, consumed up to its limit
+     * @return signature, an octet sequence of length k
+     */
+    public byte[] sign(ByteBuffer message) {
+        md.update(message);
+        return signHashed();
+    }
+
+    /**
+     * Signs a part of an array and writes the signature into a part of another one.
+     * Neither the message nor the signature is copied.
+     *
+     * @param message         array containing the message to be signed
+     * @param messageOffset   offset of the message in the array
+     * @param messageLength   length of the message
+     * @param signature       array receiving the signature
+     * @param signatureOffset offset of the signature in the array
+     * @return k, the length in octets of the signature
+     */
+    public int sign(byte[] message, int messageOffset, int messageLength, byte[] signature, int signatureOffset) {
+        if (signature.length - signatureOffset < k)
+            throw new IllegalArgumentException("Output buffer too short.");
+
+        md.update(message, messageOffset, messageLength);
+        digestInto(md, EM);
+        I2OSP(signEncoded(), k, signature, signatureOffset);
+        return k;
+    }
+
+    /**
+     * Signs the remaining octets of the buffer and puts the signature into another buffer.
+     * Both may be direct ones.
+     *
+     * @param message   message to be signed, consumed up to its limit
+     * @param signature buffer receiving the signature at its position
+     * @return k, the length in octets of the signature
+     */
+    public int sign(ByteBuffer message, ByteBuffer signature) {
+        if (signature.remaining() < k)
+            throw new IllegalArgumentException("Output buffer too short.");
+
+        md.update(message);
+        digestInto(md, EM);
+        BigInteger s = signEncoded();
+        if (signature.hasArray()) {
+            I2OSP(s, k, signature.array(), signature.arrayOffset() + signature.position());
+            signature.position(signature.position() + k);
+        } else {
+            if (S == null)
+                S = new byte[k];
+            I2OSP(s, k, S, 0);
+            signature.put(S);
+        }
+        return k;
+    }
+
+    /**
+     * Signs everything read from the stream until its end.
+     *
+     * @param message message to be signed, the stream is not closed
+     * @return signature, an octet sequence of length k
+     * @throws IOException if reading the stream fails
+     */
+    public byte[] sign(InputStream message) throws IOException {
+        try {
+            Digests.update(md, message);
+        } catch (IOException e) {
+            md.reset();
+            throw e;
+        }
+        return signHashed();
+    }
+
+    /**
+     * Signs everything read from the channel until its end.
+     *
+     * @param message message to be signed, the channel is not closed
+     * @return signature, an octet sequence of length k
+     * @throws IOException if reading the channel fails
+     */
+    public byte[] sign(ReadableByteChannel message) throws IOException {
+        try {
+            Digests.update(md, message);
+        } catch (IOException e) {
+            md.reset();
+            throw e;
+        }
+        return signHashed();
+    }
+
+    /**
+     * Signs the content of the file, which is mapped into memory in fixed-size regions.
+     *
+     * @param message file to be signed
+     * @return signature, an octet sequence of length k
+     * @throws IOException if reading the file fails
+     */
+    public byte[] sign(Path message) throws IOException {
+        try {
+            Digests.update(md, message);
+        } catch (IOException e) {
+            md.reset();
+            throw e;
+        }
+        return signHashed();
+    }
+
+    /**
+     * Signs the message already fed to the message digest.
+     */
+    private byte[] signHashed() {
+        //1. EMSA-PKCS1-v1_5 encoding: Apply the EMSA-PKCS1-v1_5 encoding operation
+        //to the message M to produce an encoded message EM of length k octets.
+        //Only the hash value at the tail of EM depends on the message.
+        digestInto(md, EM);
+
+        //c. Convert the signature representative s to a signature S of length k octets.
+        //3. Output the signature S.
+        return I2OSP(signEncoded(), k);
+    }
+
+    /**
+     * Signs the encoded message EM.
+     *
+     * @return signature representative s
+     */
+    private BigInteger signEncoded() {
+        //2. RSA signature:
+        //a. Convert the encoded message EM to an integer message representative m.
+        //b. Apply the RSASP1 signature primitive to the RSA private key and
+        //the message representative m to produce an integer signature representative s.
+        //RSASP1 is the same operation as RSADP.
+        long start = Metrics.start();
+        boolean success = false;
+        try {
+            BigInteger s = engine.RSADP(OS2IP(EM));
+            success = true;
+            return s;
+        } finally {
+            Metrics.record(YarMetrics.Operation.SIGN, privateKey, hashMethod, Metrics.stop(start), success);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.oviron.yar;
+
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Asynchronous signature service grouping requests into micro-batches.
+ * <p/>
+ * Callers submit sign and verify requests and get {@link Future}s back. A scheduler thread
+ * collects pending requests into a batch until the batch is full or the oldest request in it
+ * has waited for the maximal delay, groups the batch by operation, key and hash method and runs
+ * every group as one task on the worker executor, with one {@link YarSigner} or {@link YarVerifier}
+ * per group. The number of submitted but not yet completed requests is bounded, submitting
+ * beyond the bound blocks the caller until earlier requests complete.
+ *
+ * @author Oviron
+ */
+public class YarSigningService {
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private final ExecutorService workers;
+    private final boolean ownWorkers;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final Semaphore capacity;
+    private final BlockingQueue<Request<?>> queue = new LinkedBlockingQueue<>();
+    private final Thread scheduler;
+    private boolean shutdown;
+
+    /**
+     * Creates a service with one daemon worker thread per processor.
+     *
+     * @param capacity     maximal number of submitted requests not yet completed
+     * @param maxBatchSize maximal number of requests in a batch
+     * @param maxDelay     maximal time a request waits for its batch to fill up
+     * @param unit         unit of maxDelay
+     */
+    public YarSigningService(int capacity, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        this(Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "yar-signing-worker");
+                thread.setDaemon(true);
+                return thread;
+            }
+        }), true, capacity, maxBatchSize, maxDelay, unit);
+    }
+
+    /**
+     * Creates a service running the batches on the given executor, it is not shut down with the service.
+     *
+     * @param workers      executor running the batches
+     * @param capacity     maximal number of submitted requests not yet completed
+     * @param maxBatchSize maximal number of requests in a batch
+     * @param maxDelay     maximal time a request waits for its batch to fill up
+     * @param unit         unit of maxDelay
+     */
+    public YarSigningService(ExecutorService workers, int capacity, int maxBatchSize, long maxDelay, TimeUnit unit) {
+        this(workers, false, capacity, maxBatchSize, maxDelay, unit);
+    }
+
+    private YarSigningService(ExecutorService workers, boolean ownWorkers, int capacity, int maxBatchSize,
+                              long maxDelay, TimeUnit unit) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("Capacity " + capacity + " is not positive.");
+        if (maxBatchSize < 1)
+            throw new IllegalArgumentException("Maximum batch size " + maxBatchSize + " is not positive.");
+        if (maxDelay < 0)
+            throw new IllegalArgumentException("Maximum delay " + maxDelay + " is negative.");
+
+        this.workers = workers;
+        this.ownWorkers = ownWorkers;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = unit.toNanos(maxDelay);
+        this.capacity = new Semaphore(capacity);
+
+        this.scheduler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                schedule();
+            }
+        }, "yar-signing-scheduler");
+        this.scheduler.setDaemon(true);
+        this.scheduler.start();
+    }
+
+    /**
+     * Submits a signature request, blocking while the service is at capacity.
+     *
+     * @param message    message to be signed
+     * @param privateKey signer’s RSA private key
+     * @param hashMethod specific hash function
+     * @return future signature
+     * @throws InterruptedException if interrupted while waiting for capacity
+     */
+    public Future<byte[]> sign(final byte[] message, RSAPrivateKey privateKey, HashMethod hashMethod)
+            throws InterruptedException {
+        return submit(new Request<byte[]>(privateKey, hashMethod) {
+            @Override
+            Object newContext() {
+                return new YarSigner((RSAPrivateKey) key, hashMethod);
+            }
+
+            @Override
+            byte[] apply(Object context) {
+                return ((YarSigner) context).sign(message);
+            }
+        });
+    }
+
+    /**
+     * Submits a verification request, blocking while the service is at capacity.
+     *
+     * @param message    message whose signature is to be verified
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return future signature authenticity
+     * @throws InterruptedException if interrupted while waiting for capacity
+     */
+    public Future<Boolean> verify(final byte[] message, final byte[] signature, RSAPublicKey publicKey,
+                                  HashMethod hashMethod) throws InterruptedException {
+        return submit(new Request<Boolean>(publicKey, hashMethod) {
+            @Override
+            Object newContext() {
+                return new YarVerifier((RSAPublicKey) key, hashMethod);
+            }
+
+            @Override
+            Boolean apply(Object context) {
+                return ((YarVerifier) context).verify(message, signature);
+            }
+        });
+    }
+
+    /**
+     * Stops accepting requests. Requests submitted before are still completed,
+     * after which the scheduler and the service's own workers terminate.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (shutdown)
+                return;
+            shutdown = true;
+        }
+        scheduler.interrupt();
+    }
+
+    private <T> Future<T> submit(Request<T> request) throws InterruptedException {
+        capacity.acquire();
+        //Until the request is queued nothing else releases its permit.
+        try {
+            synchronized (this) {
+                if (shutdown)
+                    throw new RejectedExecutionException("Service is shut down.");
+                queue.add(request);
+            }
+        } catch (Throwable e) {
+            capacity.release();
+            throw e;
+        }
+        return request;
+    }
+
+    private synchronized boolean isShutdown() {
+        return shutdown;
+    }
+
+    private void schedule() {
+        List<Request<?>> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                //Wait for the first request of a batch, then for more until the batch is full
+                //or the first request has waited for maxDelay.
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Request<?> request = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (request == null)
+                        break;
+                    batch.add(request);
+                }
+            } catch (InterruptedException e) {
+                //Interrupted by shutdown, no more requests can be added to the queue.
+                if (isShutdown()) {
+                    queue.drainTo(batch);
+                    dispatch(batch);
+                    if (ownWorkers)
+                        workers.shutdown();
+                    return;
+                }
+            }
+
+            dispatch(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Splits the batch into groups sharing the operation, key and hash method
+     * and submits every group to the workers.
+     */
+    private void dispatch(List<Request<?>> batch) {
+        List<List<Request<?>>> groups = new ArrayList<>();
+        for (Request<?> request : batch) {
+            List<Request<?>> group = null;
+            for (List<Request<?>> g : groups) {
+                if (g.get(0).sameGroup(request)) {
+                    group = g;
+                    break;
+                }
+            }
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.add(group);
+            }
+            group.add(request);
+        }
+
+        for (final List<Request<?>> group : groups) {
+            try {
+                workers.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        process(group);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                for (Request<?> request : group)
+                    request.fail(e);
+            }
+        }
+    }
+
+    private static void process(List<Request<?>> group) {
+        Object context;
+        try {
+            context = group.get(0).newContext();
+        } catch (RuntimeException e) {
+            for (Request<?> request : group)
+                request.fail(e);
+            return;
+        }
+
+        for (Request<?> request : group)
+            if (!request.isDone())
+                request.complete(context);
+    }
+
+    /**
+     * Pending request, completed by the worker processing its group.
+     */
+    private abstract class Request<T> extends FutureTask<T> {
+        final RSAKey key;
+        final HashMethod hashMethod;
+
+        Request(RSAKey key, HashMethod hashMethod) {
+            super(NOTHING, null);
+            this.key = key;
+            this.hashMethod = hashMethod;
+        }
+
+        boolean sameGroup(Request<?> other) {
+            return getClass() == other.getClass() && key == other.key && hashMethod == other.hashMethod;
+        }
+
+        /**
+         * @return signer or verifier shared by the requests of a group
+         */
+        abstract Object newContext();
+
+        abstract T apply(Object context);
+
+        void complete(Object context) {
+            try {
+                set(apply(context));
+            } catch (RuntimeException e) {
+                setException(e);
+            }
+        }
+
+        void fail(Throwable e) {
+            setException(e);
+        }
+
+        @Override
+        public void run() {
+            //Requests are completed by the service only.
+        }
+
+        @Override
+        protected void done() {
+            capacity.release();
+        }
+    }
+}
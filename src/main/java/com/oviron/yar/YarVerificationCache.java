@@ -0,0 +1,213 @@
+package com.oviron.yar;
+
+import com.oviron.yar.keys.KeyFingerprint;
+
+import java.math.BigInteger;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded cache of successful signature verifications, for signatures verified over and over,
+ * like those of tokens presented with every request.
+ * <p/>
+ * A verification is identified by the {@link KeyFingerprint} and the public exponent of the public
+ * key, the hash method, the hash value of the message and the signature, all compared in full. Only valid signatures
+ * are cached, an invalid one is verified again every time. Entries expire after the time to live
+ * and the least recently used ones are evicted beyond the maximal size. The cache is split into
+ * stripes, each guarded by its own lock, so concurrent callers rarely wait for each other.
+ * Instances are thread-safe.
+ *
+ * @author Oviron
+ */
+public class YarVerificationCache {
+    private static final int STRIPES = 16;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long ttlNanos;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maximumSize maximal number of cached verifications
+     * @param ttl         time a verification stays cached
+     * @param unit        unit of ttl
+     */
+    public YarVerificationCache(int maximumSize, long ttl, TimeUnit unit) {
+        if (maximumSize < STRIPES)
+            throw new IllegalArgumentException("Maximum size " + maximumSize + " is less than " + STRIPES + ".");
+        if (ttl <= 0)
+            throw new IllegalArgumentException("Time to live " + ttl + " is not positive.");
+
+        for (int i = 0; i < STRIPES; i++)
+            stripes[i] = new Stripe(maximumSize / STRIPES);
+        this.ttlNanos = unit.toNanos(ttl);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY, answered from the cache for a signature verified successfully before.
+     *
+     * @param message    message whose signature is to be verified
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     * @return signature authenticity
+     */
+    public boolean verify(byte[] message, byte[] signature, RSAPublicKey publicKey, HashMethod hashMethod) {
+        return verifyDigest(Encodings.digest(hashMethod).digest(message), signature, publicKey, hashMethod);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY of a message hashed elsewhere, answered from the cache
+     * for a signature verified successfully before.
+     *
+     * @param hash       hash value of the message computed with the given hash function
+     * @param signature  signature to be verified
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod hash function the hash value was computed with
+     * @return signature authenticity
+     */
+    public boolean verifyDigest(byte[] hash, byte[] signature, RSAPublicKey publicKey, HashMethod hashMethod) {
+        Verification verification = new Verification(KeyFingerprint.of(publicKey),
+                publicKey.getPublicExponent(), hashMethod, hash.clone(), signature.clone());
+        Stripe stripe = stripes[verification.hashCode() & (STRIPES - 1)];
+
+        long now = System.nanoTime();
+        if (stripe.contains(verification, now)) {
+            hits.incrementAndGet();
+            return true;
+        }
+        misses.incrementAndGet();
+
+        if (!Yar.verifyDigest(hash, signature, publicKey, hashMethod))
+            return false;
+        stripe.put(verification, now + ttlNanos);
+        return true;
+    }
+
+    /**
+     * Removes all cached verifications, the statistics are kept.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes)
+            stripe.clear();
+    }
+
+    /**
+     * @return number of verifications answered from the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of verifications computed
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return share of verifications answered from the cache, 0 before any verification
+     */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    /**
+     * @return number of cached verifications, expired ones not yet evicted included
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes)
+            size += stripe.size();
+        return size;
+    }
+
+    /**
+     * Part of the cache with its own lock, ordered from the least to the most recently used entry.
+     */
+    private static class Stripe {
+        private final Map<Verification, Long> expirations;
+
+        Stripe(final int maximumSize) {
+            this.expirations = new LinkedHashMap<Verification, Long>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Verification, Long> eldest) {
+                    return size() > maximumSize;
+                }
+            };
+        }
+
+        synchronized boolean contains(Verification verification, long now) {
+            Long expiration = expirations.get(verification);
+            if (expiration == null)
+                return false;
+            if (expiration - now < 0) {
+                expirations.remove(verification);
+                return false;
+            }
+            return true;
+        }
+
+        synchronized void put(Verification verification, long expiration) {
+            expirations.put(verification, expiration);
+        }
+
+        synchronized void clear() {
+            expirations.clear();
+        }
+
+        synchronized int size() {
+            return expirations.size();
+        }
+    }
+
+    private static class Verification {
+        final KeyFingerprint fingerprint;
+        //The fingerprint covers the modulus only, keys sharing it may differ in the exponent.
+        final BigInteger exponent;
+        final HashMethod hashMethod;
+        final byte[] hash;
+        final byte[] signature;
+        final int hashCode;
+
+        Verification(KeyFingerprint fingerprint, BigInteger exponent, HashMethod hashMethod, byte[] hash,
+                     byte[] signature) {
+            this.fingerprint = fingerprint;
+            this.exponent = exponent;
+            this.hashMethod = hashMethod;
+            this.hash = hash;
+            this.signature = signature;
+            //Spread the bits, the low ones select the stripe.
+            int h = fingerprint.hashCode() * 31 + exponent.hashCode();
+            h = h * 31 + hashMethod.ordinal();
+            h = h * 31 + Arrays.hashCode(hash);
+            h = h * 31 + Arrays.hashCode(signature);
+            this.hashCode = h ^ h >>> 16;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Verification))
+                return false;
+            Verification other = (Verification) obj;
+            return hashCode == other.hashCode
+                    && hashMethod == other.hashMethod
+                    && fingerprint.equals(other.fingerprint)
+                    && exponent.equals(other.exponent)
+                    && Arrays.equals(hash, other.hash)
+                    && Arrays.equals(signature, other.signature);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+}
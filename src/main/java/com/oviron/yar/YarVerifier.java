@@ -0,0 +1,386 @@
+package com.oviron.yar;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.interfaces.RSAPublicKey;
+import java.util.Arrays;
+
+import static com.oviron.yar.Encodings.*;
+import static com.oviron.yar.Primitives.*;
+
+/**
+ * RSASSA-PKCS1-V1_5 signature verification bound to one public key and hash method.
+ * <p/>
+ * The modulus length, the message digest and the expected encoded message with everything
+ * but the hash value are prepared once, so a verification costs one hash and one RSAVP1.
+ * The public key is prepared once as well, see {@link PublicKeyEngine}.
+ * <p/>
+ * A message may be passed at once to one of the verify methods or in parts to the update
+ * methods followed by {@link #verify(byte[])}, like with {@link java.security.Signature}.
+ * A verify method taking a message is the same as update with it followed by verify(signature),
+ * so it includes parts passed to update before. Every verification leaves the verifier ready
+ * for the next message, a malformed signature discards the message parts added so far.
+ * Instances are not thread-safe, use a separate verifier per thread.
+ *
+ * @author Oviron
+ */
+public class YarVerifier {
+    private final RSAPublicKey publicKey;
+    private final HashMethod hashMethod;
+    private final PublicKeyEngine engine;
+    private final int k;
+    private final MessageDigest md;
+    private final byte[] EM;
+    private final byte[] EMs;
+    private long nanos;
+
+    /**
+     * @param publicKey  signer’s RSA public key
+     * @param hashMethod specific hash function
+     */
+    public YarVerifier(RSAPublicKey publicKey, HashMethod hashMethod) {
+        this.publicKey = publicKey;
+        this.hashMethod = hashMethod;
+        this.engine = new PublicKeyEngine(publicKey);
+        this.k = modulusLength(publicKey);
+        this.md = digest(hashMethod);
+
+        try {
+            this.EM = EMSATemplate(k, hashMethod, md.getDigestLength());
+        } catch (IllegalArgumentException e) {
+            //If the encoding operation outputs “intended encoded message length too
+            //short,” output “RSA modulus too short” and stop.
+            throw new IllegalArgumentException("RSA modulus too short");
+        }
+        this.EMs = new byte[k];
+    }
+
+    public RSAPublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public HashMethod getHashMethod() {
+        return hashMethod;
+    }
+
+    /**
+     * Adds a part of the message whose signature is to be verified.
+     *
+     * @param data part of the message
+     */
+    public void update(byte[] data) {
+        md.update(data);
+    }
+
+    /**
+     * Adds a part of the message whose signature is to be verified.
+     *
+     * @param data   array containing a part of the message
+     * @param offset offset of the part in the array
+     * @param length length of the part
+     */
+    public void update(byte[] data, int offset, int length) {
+        md.update(data, offset, length);
+    }
+
+    /**
+     * Adds the remaining octets of the buffer, which may be a direct one, to the message
+     * whose signature is to be verified.
+     *
+     * @param data part of the message, consumed up to its limit
+     */
+    public void update(ByteBuffer data) {
+        md.update(data);
+    }
+
+    /**
+     * Discards the message parts added so far.
+     */
+    public void reset() {
+        md.reset();
+    }
+
+    /**
+     * Verifies the signature of the message parts added so far.
+     *
+     * @param signature signature to be verified, an octet sequence of length k
+     * @return signature authenticity
+     */
+    public boolean verify(byte[] signature) {
+        byte[] EMs = recover(signature);
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        return matches(EMs);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY of a message hashed elsewhere.
+     * The message parts added by update, if any, are left untouched.
+     *
+     * @param hash      hash value of the message computed with the verifier's hash function
+     * @param signature signature to be verified, an octet sequence of length k
+     * @return signature authenticity
+     */
+    public boolean verifyDigest(byte[] hash, byte[] signature) {
+        checkHashLength(hash, md);
+
+        byte[] EMs = recover(signature);
+        if (EMs == null)
+            return false;
+
+        //3. EMSA-PKCS1-v1_5 encoding with the hash value H given.
+        System.arraycopy(hash, 0, EM, k - hash.length, hash.length);
+
+        return matchesEncoded(EMs);
+    }
+
+    public boolean verify(String message, byte[] signature) {
+        return verify(message.getBytes(), signature);
+    }
+
+    /**
+     * RSASSA-PKCS1-V1_5-VERIFY implementation
+     *
+     * @param message   message whose signature is to be verified, an octet sequence
+     * @param signature signature to be verified, an octet sequence of length k, where k is the
+     *                  length in octets of the RSA modulus n
+     * @return signature authenticity
+     */
+    public boolean verify(byte[] message, byte[] signature) {
+        byte[] EMs = recover(signature);
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        md.update(message);
+        return matches(EMs);
+    }
+
+    /**
+     * Verifies the signature of the remaining octets of the buffer, which may be a direct one.
+     *
+     * @param message   message whose signature is to be verified, consumed up to its limit
+     *                  unless the signature is malformed
+     * @param signature signature to be verified
+     * @return signature authenticity
+     */
+    public boolean verify(ByteBuffer message, byte[] signature) {
+        byte[] EMs = recover(signature);
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        md.update(message);
+        return matches(EMs);
+    }
+
+    /**
+     * Verifies the signature of a part of an array, with the signature read from a part of another one.
+     * Neither the message nor the signature is copied.
+     *
+     * @param message         array containing the message
+     * @param messageOffset   offset of the message in the array
+     * @param messageLength   length of the message
+     * @param signature       array containing the signature
+     * @param signatureOffset offset of the signature in the array
+     * @param signatureLength length of the signature
+     * @return signature authenticity
+     */
+    public boolean verify(byte[] message, int messageOffset, int messageLength,
+                          byte[] signature, int signatureOffset, int signatureLength) {
+        byte[] EMs = recover(signature, signatureOffset, signatureLength);
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        md.update(message, messageOffset, messageLength);
+        return matches(EMs);
+    }
+
+    /**
+     * Verifies the signature of the remaining octets of the buffer, with the signature taken from
+     * the remaining octets of another buffer. Both may be direct ones.
+     *
+     * @param message   message whose signature is to be verified, consumed up to its limit
+     *                  unless the signature is malformed
+     * @param signature signature to be verified, consumed up to its limit
+     * @return signature authenticity
+     */
+    public boolean verify(ByteBuffer message, ByteBuffer signature) {
+        byte[] EMs;
+        int length = signature.remaining();
+        if (signature.hasArray()) {
+            EMs = recover(signature.array(), signature.arrayOffset() + signature.position(), length);
+            signature.position(signature.limit());
+        } else if (length == k) {
+            signature.get(this.EMs);
+            EMs = recover(this.EMs, 0, k);
+        } else {
+            //Rejected by the length check, which records the failure.
+            signature.position(signature.limit());
+            EMs = recover(null, 0, length);
+        }
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        md.update(message);
+        return matches(EMs);
+    }
+
+    /**
+     * Verifies the signature of everything read from the stream until its end.
+     *
+     * @param message   message whose signature is to be verified, the stream is not closed
+     *                  and is not read at all if the signature is malformed
+     * @param signature signature to be verified
+     * @return signature authenticity
+     * @throws IOException if reading the stream fails
+     */
+    public boolean verify(InputStream message, byte[] signature) throws IOException {
+        byte[] EMs = recover(signature);
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        try {
+            Digests.update(md, message);
+        } catch (IOException e) {
+            md.reset();
+            throw e;
+        }
+        return matches(EMs);
+    }
+
+    /**
+     * Verifies the signature of everything read from the channel until its end.
+     *
+     * @param message   message whose signature is to be verified, the channel is not closed
+     *                  and is not read at all if the signature is malformed
+     * @param signature signature to be verified
+     * @return signature authenticity
+     * @throws IOException if reading the channel fails
+     */
+    public boolean verify(ReadableByteChannel message, byte[] signature) throws IOException {
+        byte[] EMs = recover(signature);
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        try {
+            Digests.update(md, message);
+        } catch (IOException e) {
+            md.reset();
+            throw e;
+        }
+        return matches(EMs);
+    }
+
+    /**
+     * Verifies the signature of the file content, which is mapped into memory in fixed-size regions.
+     *
+     * @param message   file whose signature is to be verified
+     * @param signature signature to be verified
+     * @return signature authenticity
+     * @throws IOException if reading the file fails
+     */
+    public boolean verify(Path message, byte[] signature) throws IOException {
+        byte[] EMs = recover(signature);
+        if (EMs == null) {
+            md.reset();
+            return false;
+        }
+
+        try {
+            Digests.update(md, message);
+        } catch (IOException e) {
+            md.reset();
+            throw e;
+        }
+        return matches(EMs);
+    }
+
+    /**
+     * Recovers the encoded message from the signature.
+     *
+     * @param signature signature to be verified
+     * @return encoded message EM of length k octets or null if the signature is invalid
+     */
+    private byte[] recover(byte[] signature) {
+        return recover(signature, 0, signature.length);
+    }
+
+    /**
+     * Recovers the encoded message from the signature held in a part of an array.
+     *
+     * @return encoded message EM of length k octets, written to the reused EMs buffer,
+     *         or null if the signature is invalid
+     */
+    private byte[] recover(byte[] signature, int offset, int length) {
+        //The latency is recorded with the outcome of the comparison, after the message is hashed.
+        long start = Metrics.start();
+
+        //1. Length checking: If the length of the signature S is not k octets,
+        //output “invalid signature” and stop.
+        if (length != k) {
+            Metrics.record(YarMetrics.Operation.VERIFY, publicKey, hashMethod, Metrics.stop(start), false);
+            return null;
+        }
+
+        //2. RSA verification:
+        //a. Convert the signature S to an integer signature representative s.
+        //b. Apply the RSAVP1 verification primitive to the RSA public key
+        //and the signature representative s to produce an integer message representative m.
+        //RSAVP1 is the same operation as RSAEP.
+        //c. Convert the message representative m to an encoded message EM of length k octets.
+        try {
+            BigInteger m = engine.RSAEP(OS2IP(signature, offset, length));
+            I2OSP(m, k, EMs, 0);
+            nanos = Metrics.stop(start);
+            return EMs;
+        } catch (IllegalArgumentException e) {
+            //If RSAVP1 outputs “signature representative out of range,” output
+            //“invalid signature” and stop.
+            //If I2OSP outputs “integer too large,” output “invalid signature” and stop.
+            Metrics.record(YarMetrics.Operation.VERIFY, publicKey, hashMethod, Metrics.stop(start), false);
+            return null;
+        }
+    }
+
+    /**
+     * Compares the recovered encoded message with the encoding of the message already fed to the message digest.
+     */
+    private boolean matches(byte[] EMs) {
+        //3. EMSA-PKCS1-v1_5 encoding: Apply the EMSA-PKCS1-v1_5 encoding operation
+        //to the message M to produce a second encoded message EM' of length k octets.
+        //Only the hash value at the tail of EM' depends on the message.
+        digestInto(md, EM);
+
+        return matchesEncoded(EMs);
+    }
+
+    /**
+     * Compares the recovered encoded message with the second encoded message EM'.
+     */
+    private boolean matchesEncoded(byte[] EMs) {
+        //4. Compare the encoded message EM and the second encoded message EM’. If they
+        //are the same, output “valid signature”; otherwise, output “invalid signature.”
+        boolean valid = Arrays.equals(EMs, EM);
+        Metrics.record(YarMetrics.Operation.VERIFY, publicKey, hashMethod, nanos, valid);
+        return valid;
+    }
+}
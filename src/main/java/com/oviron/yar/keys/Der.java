@@ -0,0 +1,170 @@
+package com.oviron.yar.keys;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Minimal reading and writing of the DER encoding (ITU-T X.690) of the ASN.1 types used by RSA keys.
+ * <p/>
+ * Reading works on views of the encoding, so nested values are never copied. Only the octets of
+ * integers are copied once, to build the BigIntegers.
+ *
+ * @author Oviron
+ */
+class Der {
+    static final int INTEGER = 0x02;
+    static final int BIT_STRING = 0x03;
+    static final int OCTET_STRING = 0x04;
+    static final int NULL = 0x05;
+    static final int OBJECT_IDENTIFIER = 0x06;
+    static final int SEQUENCE = 0x30;
+
+    /**
+     * Size of the first chunk of contents read from a stream.
+     */
+    private static final int CHUNK = 4096;
+
+    /**
+     * @param in encoding
+     * @return tag of the next value, -1 if there is none
+     */
+    static int peek(ByteBuffer in) {
+        return in.hasRemaining() ? in.get(in.position()) & 0xff : -1;
+    }
+
+    /**
+     * Reads a value of the given type.
+     *
+     * @param in  encoding, its position is moved past the value
+     * @param tag expected tag
+     * @return view of the contents of the value
+     */
+    static ByteBuffer read(ByteBuffer in, int tag) {
+        try {
+            if ((in.get() & 0xff) != tag)
+                throw new IllegalArgumentException("Malformed key.");
+
+            int length = readLength(in.get() & 0xff, in, null);
+            if (length > in.remaining())
+                throw new IllegalArgumentException("Malformed key.");
+
+            ByteBuffer contents = in.slice();
+            contents.limit(length);
+            in.position(in.position() + length);
+            return contents;
+        } catch (BufferUnderflowException | IOException e) {
+            throw new IllegalArgumentException("Malformed key.");
+        }
+    }
+
+    static BigInteger readInteger(ByteBuffer in) {
+        ByteBuffer contents = read(in, INTEGER);
+        if (!contents.hasRemaining())
+            throw new IllegalArgumentException("Malformed key.");
+        byte[] octets = new byte[contents.remaining()];
+        contents.get(octets);
+        return new BigInteger(octets);
+    }
+
+    /**
+     * Reads a single value of the given type from the stream, reading no octet past it.
+     *
+     * @param in  stream
+     * @param tag expected tag
+     * @return contents of the value, null if the stream ended before the value
+     * @throws IOException if reading fails or the stream ends within the value
+     */
+    static ByteBuffer read(InputStream in, int tag) throws IOException {
+        int first = in.read();
+        if (first == -1)
+            return null;
+        if (first != tag)
+            throw new IllegalArgumentException("Malformed key.");
+
+        //The declared length is not trusted: the contents grow in bounded chunks as they arrive, so a
+        //hostile length ends in an EOFException rather than in a huge allocation.
+        int length = readLength(readOctet(in), null, in);
+        byte[] contents = new byte[Math.min(length, CHUNK)];
+        for (int read = 0; read < length; ) {
+            if (read == contents.length)
+                contents = Arrays.copyOf(contents, (int) Math.min(length, 2L * read));
+            int count = in.read(contents, read, contents.length - read);
+            if (count == -1)
+                throw new EOFException();
+            read += count;
+        }
+        return ByteBuffer.wrap(contents);
+    }
+
+    private static int readLength(int first, ByteBuffer buffer, InputStream stream) throws IOException {
+        if (first < 0x80)
+            return first;
+
+        //Long form, at most 4 length octets are supported.
+        int count = first & 0x7f;
+        if (count == 0 || count > 4)
+            throw new IllegalArgumentException("Malformed key.");
+        long length = 0;
+        for (int i = 0; i < count; i++)
+            length = length << 8 | (buffer != null ? buffer.get() & 0xff : readOctet(stream));
+        if (length > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Malformed key.");
+        return (int) length;
+    }
+
+    private static int readOctet(InputStream in) throws IOException {
+        int octet = in.read();
+        if (octet == -1)
+            throw new EOFException();
+        return octet;
+    }
+
+    /**
+     * Writes a value.
+     *
+     * @param out      destination
+     * @param tag      tag of the value
+     * @param contents contents of the value
+     */
+    static void write(ByteArrayOutputStream out, int tag, byte[] contents) {
+        out.write(tag);
+        int length = contents.length;
+        if (length < 0x80) {
+            out.write(length);
+        } else {
+            int count = (Integer.SIZE - Integer.numberOfLeadingZeros(length) + 7) / 8;
+            out.write(0x80 | count);
+            for (int i = count - 1; i >= 0; i--)
+                out.write(length >>> 8 * i);
+        }
+        out.write(contents, 0, length);
+    }
+
+    /**
+     * @param integers integers
+     * @return contents of a sequence of the integers
+     */
+    static byte[] integers(BigInteger... integers) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (BigInteger integer : integers)
+            write(out, INTEGER, integer.toByteArray());
+        return out.toByteArray();
+    }
+
+    /**
+     * @param tag      tag of the value
+     * @param contents contents of the value
+     * @return encoding of the value
+     */
+    static byte[] encode(int tag, byte[] contents) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(contents.length + 6);
+        write(out, tag, contents);
+        return out.toByteArray();
+    }
+}
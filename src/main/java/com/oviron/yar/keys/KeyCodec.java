@@ -0,0 +1,88 @@
+package com.oviron.yar.keys;
+
+import java.math.BigInteger;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reading and writing of the fields of the binary key formats.
+ * <p/>
+ * A key is encoded as four magic octets, "RSAP" for a public key and "RSAK" for a private key,
+ * followed by its integers, each as a 4-octet big-endian length and the two's-complement
+ * big-endian octets of the integer. A versioned format marks the magic with the octet 0xFF
+ * followed by the version octet, the unversioned one is version 1.
+ *
+ * @author Oviron
+ */
+class KeyCodec {
+    static final byte VERSIONED = (byte) 0xff;
+
+    /**
+     * Reads the magic and the version of the format.
+     *
+     * @param buffer encoded key, its position is moved past the header
+     * @param type   fourth magic octet, the type of the key
+     * @return version of the format
+     */
+    static int readHeader(ByteBuffer buffer, byte type) {
+        try {
+            if (buffer.get() != 0x52 //R
+                    || buffer.get() != 0x53 //S
+                    || buffer.get() != 0x41 //A
+                    || buffer.get() != type)
+                throw new IllegalArgumentException("Malformed key.");
+
+            //The unversioned format starts with the length of an integer, whose first octet is never 0xFF.
+            if (buffer.get(buffer.position()) != VERSIONED)
+                return 1;
+            buffer.get();
+            return buffer.get() & 0xff;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Malformed key.");
+        }
+    }
+
+    /**
+     * Reads an integer field, copying only its octets.
+     *
+     * @param buffer encoded key, its position is moved past the field
+     * @return integer
+     */
+    static BigInteger readInteger(ByteBuffer buffer) {
+        try {
+            int length = buffer.getInt();
+            if (length < 1 || length > buffer.remaining())
+                throw new IllegalArgumentException("Malformed key.");
+            byte[] octets = new byte[length];
+            buffer.get(octets);
+            return new BigInteger(octets);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Malformed key.");
+        }
+    }
+
+    /**
+     * Writes a key in the given format.
+     *
+     * @param type     fourth magic octet, the type of the key
+     * @param version  version of the format, 1 for the unversioned one
+     * @param integers integer fields
+     * @return encoded key
+     */
+    static byte[] encode(byte type, int version, BigInteger... integers) {
+        byte[][] octets = new byte[integers.length][];
+        int length = version == 1 ? 4 : 6;
+        for (int i = 0; i < integers.length; i++) {
+            octets[i] = integers[i].toByteArray();
+            length += 4 + octets[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        buffer.put((byte) 0x52).put((byte) 0x53).put((byte) 0x41).put(type);
+        if (version != 1)
+            buffer.put(VERSIONED).put((byte) version);
+        for (byte[] integer : octets)
+            buffer.putInt(integer.length).put(integer);
+        return buffer.array();
+    }
+}
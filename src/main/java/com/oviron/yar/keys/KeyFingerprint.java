@@ -0,0 +1,83 @@
+package com.oviron.yar.keys;
+
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.interfaces.RSAKey;
+import java.util.Arrays;
+
+/**
+ * Stable identity of an RSA key, the SHA-256 hash of the octets of its modulus.
+ * <p/>
+ * The public and the private key of a pair share the fingerprint. Fingerprints are
+ * comparable with equals and hashCode, so they may serve as map keys for any RSA key,
+ * whichever its implementation.
+ *
+ * @author Oviron
+ */
+public final class KeyFingerprint implements Comparable<KeyFingerprint> {
+    public static final int LENGTH = 32;
+
+    private final byte[] bytes;
+
+    private KeyFingerprint(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @param key RSA key
+     * @return fingerprint of the key
+     */
+    public static KeyFingerprint of(RSAKey key) {
+        byte[] modulus = key.getModulus().toByteArray();
+        //Skip the sign octet, the fingerprint covers the magnitude only.
+        int offset = modulus[0] == 0 && modulus.length > 1 ? 1 : 0;
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update(modulus, offset, modulus.length - offset);
+            return new KeyFingerprint(md.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param bytes fingerprint octets, as returned by {@link #getBytes()}
+     * @return fingerprint
+     */
+    public static KeyFingerprint valueOf(byte[] bytes) {
+        if (bytes.length != LENGTH)
+            throw new IllegalArgumentException("Fingerprint length must be " + LENGTH + ".");
+        return new KeyFingerprint(bytes.clone());
+    }
+
+    public byte[] getBytes() {
+        return bytes.clone();
+    }
+
+    @Override
+    public int compareTo(KeyFingerprint other) {
+        for (int i = 0; i < LENGTH; i++) {
+            int difference = (bytes[i] & 0xff) - (other.bytes[i] & 0xff);
+            if (difference != 0)
+                return difference;
+        }
+        return 0;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof KeyFingerprint && Arrays.equals(bytes, ((KeyFingerprint) obj).bytes);
+    }
+
+    @Override
+    public int hashCode() {
+        //The octets are uniformly distributed already.
+        return (bytes[0] & 0xff) << 24 | (bytes[1] & 0xff) << 16 | (bytes[2] & 0xff) << 8 | (bytes[3] & 0xff);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%064x", new BigInteger(1, bytes));
+    }
+}
@@ -0,0 +1,87 @@
+package com.oviron.yar.keys;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * Labels and Base64 alphabet of the PEM textual encoding (RFC 7468).
+ *
+ * @author Oviron
+ */
+class Pem {
+    static final String PUBLIC_KEY = "PUBLIC KEY";
+    static final String PRIVATE_KEY = "PRIVATE KEY";
+    static final String RSA_PUBLIC_KEY = "RSA PUBLIC KEY";
+    static final String RSA_PRIVATE_KEY = "RSA PRIVATE KEY";
+    static final String ENCRYPTED_PRIVATE_KEY = "ENCRYPTED PRIVATE KEY";
+
+    static final char[] ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] VALUES = new int[128];
+
+    static {
+        Arrays.fill(VALUES, -1);
+        for (int i = 0; i < ALPHABET.length; i++)
+            VALUES[ALPHABET[i]] = i;
+    }
+
+    /**
+     * Incremental Base64 decoder, fed one line of a PEM block at a time.
+     */
+    static class Decoder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private int bits;
+        private int count;
+        private boolean padded;
+
+        void update(CharSequence line) {
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '=') {
+                    padded = true;
+                    continue;
+                }
+                if (Character.isWhitespace(c))
+                    continue;
+
+                int value = c < 128 ? VALUES[c] : -1;
+                if (value == -1 || padded) {
+                    reset();
+                    throw new IllegalArgumentException("Malformed PEM.");
+                }
+
+                bits = bits << 6 | value;
+                count += 6;
+                if (count >= 8) {
+                    count -= 8;
+                    out.write(bits >>> count);
+                    bits &= (1 << count) - 1;
+                }
+            }
+        }
+
+        /**
+         * @return octets decoded since the last reset
+         */
+        byte[] finish() {
+            //A single character of a quantum carries no full octet, and the bits left over
+            //after the last octet are zero in a complete encoding.
+            if (count == 6 || bits != 0) {
+                reset();
+                throw new IllegalArgumentException("Malformed PEM.");
+            }
+            byte[] decoded = out.toByteArray();
+            reset();
+            return decoded;
+        }
+
+        /**
+         * Drops the state of the block decoded so far.
+         */
+        void reset() {
+            out.reset();
+            bits = 0;
+            count = 0;
+            padded = false;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.oviron.yar.keys;
+
+import java.math.BigInteger;
+import java.util.Random;
+
+/**
+ * Incremental search for RSA primes with a small-prime sieve.
+ * <p/>
+ * A random odd start of the requested length with the two top bits set is drawn, and its
+ * residues modulo the small primes are computed once. The candidates start, start + 2, ... are
+ * then ruled out with integer arithmetic on these residues alone, and only the survivors,
+ * about one in twenty, go through {@link BigInteger#isProbablePrime}. The two top bits make
+ * the product of two such primes exactly as long as the sum of their lengths.
+ *
+ * @author Oviron
+ */
+class Primes {
+    /**
+     * Number of candidates examined per start, a window covers several average prime gaps.
+     */
+    private static final int WINDOW = 1 << 16;
+
+    private static final int[] SMALL_PRIMES = smallPrimes(1 << 13);
+
+    /**
+     * Searches a prime p of the given bit length such that GCD(e, p − 1) = 1.
+     *
+     * @param bitLength bit length of p
+     * @param e         public exponent, an odd prime
+     * @param certainty certainty of {@link BigInteger#isProbablePrime}
+     * @param random    source of the starts
+     * @return prime p with its two top bits set
+     */
+    static BigInteger find(int bitLength, int e, int certainty, Random random) {
+        int[] residues = new int[SMALL_PRIMES.length];
+        BigInteger bigE = BigInteger.valueOf(e);
+
+        while (true) {
+            //Odd start with the two top bits set.
+            BigInteger start = new BigInteger(bitLength, random)
+                    .setBit(bitLength - 1).setBit(bitLength - 2).setBit(0);
+
+            for (int i = 0; i < SMALL_PRIMES.length; i++)
+                residues[i] = start.mod(BigInteger.valueOf(SMALL_PRIMES[i])).intValue();
+            int residueE = start.mod(bigE).intValue();
+
+            candidates:
+            for (int delta = 0; delta < WINDOW; delta += 2) {
+                for (int i = 0; i < SMALL_PRIMES.length; i++)
+                    if ((residues[i] + delta) % SMALL_PRIMES[i] == 0)
+                        continue candidates;
+                //GCD(e, p − 1) = 1 means p mod e != 1 for a prime e.
+                if ((residueE + delta) % e == 1)
+                    continue;
+
+                BigInteger candidate = start.add(BigInteger.valueOf(delta));
+                if (candidate.bitLength() != bitLength)
+                    break;
+                if (candidate.isProbablePrime(certainty))
+                    return candidate;
+            }
+        }
+    }
+
+    /**
+     * Certainty for primes of the given bit length. A random large number is far less likely
+     * to fool Miller-Rabin than a chosen one, so the longer the primes the fewer rounds keep the
+     * error probability below 2^-100. {@link BigInteger#isProbablePrime} runs certainty / 2
+     * rounds at most, followed by a Lucas test.
+     *
+     * @param bitLength bit length of the primes, at least 512 as keys are at least 1024 bits long
+     * @return certainty
+     */
+    static int certainty(int bitLength) {
+        if (bitLength >= 1536)
+            return 6;
+        if (bitLength >= 1024)
+            return 8;
+        return 14;
+    }
+
+    /**
+     * @return odd primes below the limit
+     */
+    private static int[] smallPrimes(int limit) {
+        boolean[] composite = new boolean[limit];
+        int count = 0;
+        for (int i = 3; i < limit; i += 2) {
+            if (!composite[i]) {
+                count++;
+                for (int j = i * i; j < limit; j += 2 * i)
+                    composite[j] = true;
+            }
+        }
+
+        int[] primes = new int[count];
+        for (int i = 3, j = 0; i < limit; i += 2)
+            if (!composite[i])
+                primes[j++] = i;
+        return primes;
+    }
+}
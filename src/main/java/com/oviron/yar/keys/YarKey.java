@@ -44,4 +44,12 @@ abstract class YarKey implements Key, RSAKey {
                 && n.equals(((RSAKey) obj).getModulus()));
 
     }
+
+    /**
+     * Consistent with equals, which compares the moduli. See
+     * {@link KeyFingerprint} for an identity shared by all key implementations.
+     */
+    public int hashCode() {
+        return n.hashCode();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,200 @@
+package com.oviron.yar.keys;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * DER encodings of RSA keys interchangeable with other tools, OpenSSL or JCA among others.
+ * <p/>
+ * Decoding recognizes the structure of the encoding and builds YAR keys directly, with the CRT
+ * components of private keys taken as stored:
+ * <ul>
+ * <li>PKCS #1 RSAPublicKey and RSAPrivateKey, see PKCS #1 v2.1 appendix A.1,</li>
+ * <li>PKCS #8 PrivateKeyInfo of an RSA private key,</li>
+ * <li>X.509 SubjectPublicKeyInfo of an RSA public key.</li>
+ * </ul>
+ * See {@link YarPemReader} and {@link YarPemWriter} for the PEM form of these encodings.
+ *
+ * @author Oviron
+ */
+public class YarKeyFormats {
+    /**
+     * DER encoding of the AlgorithmIdentifier of rsaEncryption, OID 1.2.840.113549.1.1.1 with NULL parameters.
+     */
+    private static final byte[] RSA_ENCRYPTION = {
+            0x30, 0x0d,
+            0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01,
+            0x05, 0x00
+    };
+
+    /**
+     * Decodes a key in any of the supported encodings.
+     *
+     * @param der DER encoding of the key
+     * @return {@link YarPublicKey} or {@link YarPrivateKey}
+     */
+    public static RSAKey decode(byte[] der) {
+        return decode(ByteBuffer.wrap(der));
+    }
+
+    /**
+     * Decodes a key in any of the supported encodings starting at the position of the buffer.
+     *
+     * @param der buffer containing the DER encoding of the key, its position is moved past the key
+     * @return {@link YarPublicKey} or {@link YarPrivateKey}
+     */
+    public static RSAKey decode(ByteBuffer der) {
+        return decodeSequence(Der.read(der, Der.SEQUENCE));
+    }
+
+    /**
+     * Reads a key in any of the supported encodings from the stream, reading no octet past it.
+     * Keys concatenated in a stream are read one by one.
+     *
+     * @param in stream of DER encoded keys, it is not closed
+     * @return {@link YarPublicKey} or {@link YarPrivateKey}, null at the end of the stream
+     * @throws IOException if reading fails or the stream ends within a key
+     */
+    public static RSAKey read(InputStream in) throws IOException {
+        ByteBuffer contents = Der.read(in, Der.SEQUENCE);
+        return contents == null ? null : decodeSequence(contents);
+    }
+
+    private static RSAKey decodeSequence(ByteBuffer sequence) {
+        if (Der.peek(sequence) == Der.SEQUENCE) {
+            //SubjectPublicKeyInfo ::= SEQUENCE {
+            //    algorithm AlgorithmIdentifier,
+            //    subjectPublicKey BIT STRING
+            //}
+            checkAlgorithm(sequence);
+            ByteBuffer bits = Der.read(sequence, Der.BIT_STRING);
+            if (!bits.hasRemaining() || bits.get() != 0)
+                throw new IllegalArgumentException("Malformed key.");
+            ByteBuffer publicKey = Der.read(bits, Der.SEQUENCE);
+            return decodePublicKey(Der.readInteger(publicKey), Der.readInteger(publicKey), publicKey);
+        }
+
+        BigInteger first = Der.readInteger(sequence);
+        if (Der.peek(sequence) == Der.SEQUENCE) {
+            //PrivateKeyInfo ::= SEQUENCE {
+            //    version Version,
+            //    privateKeyAlgorithm AlgorithmIdentifier,
+            //    privateKey OCTET STRING,
+            //    attributes [0] IMPLICIT Attributes OPTIONAL
+            //}
+            if (first.signum() != 0)
+                throw new IllegalArgumentException("Malformed key.");
+            checkAlgorithm(sequence);
+            ByteBuffer privateKey = Der.read(Der.read(sequence, Der.OCTET_STRING), Der.SEQUENCE);
+            return decodePrivateKey(Der.readInteger(privateKey), Der.readInteger(privateKey), privateKey);
+        }
+
+        BigInteger second = Der.readInteger(sequence);
+        if (!sequence.hasRemaining())
+            return decodePublicKey(first, second, sequence);
+        return decodePrivateKey(first, second, sequence);
+    }
+
+    private static YarPublicKey decodePublicKey(BigInteger n, BigInteger e, ByteBuffer sequence) {
+        //RSAPublicKey ::= SEQUENCE {
+        //    modulus INTEGER, -- n
+        //    publicExponent INTEGER -- e
+        //}
+        if (sequence.hasRemaining())
+            throw new IllegalArgumentException("Malformed key.");
+        return new YarPublicKey(n, e);
+    }
+
+    private static YarPrivateKey decodePrivateKey(BigInteger version, BigInteger n, ByteBuffer sequence) {
+        //RSAPrivateKey ::= SEQUENCE {
+        //    version Version,
+        //    modulus INTEGER, -- n
+        //    publicExponent INTEGER, -- e
+        //    privateExponent INTEGER, -- d
+        //    prime1 INTEGER, -- p
+        //    prime2 INTEGER, -- q
+        //    exponent1 INTEGER, -- d mod (p-1)
+        //    exponent2 INTEGER, -- d mod (q-1)
+        //    coefficient INTEGER, -- (inverse of q) mod p
+        //    otherPrimeInfos OtherPrimeInfos OPTIONAL
+        //}
+        if (version.signum() != 0)
+            throw new IllegalArgumentException("Multi-prime keys are not supported.");
+        BigInteger e = Der.readInteger(sequence);
+        BigInteger d = Der.readInteger(sequence);
+        BigInteger p = Der.readInteger(sequence);
+        BigInteger q = Der.readInteger(sequence);
+        BigInteger dP = Der.readInteger(sequence);
+        BigInteger dQ = Der.readInteger(sequence);
+        BigInteger qInv = Der.readInteger(sequence);
+        //Version 0 has no otherPrimeInfos.
+        if (sequence.hasRemaining())
+            throw new IllegalArgumentException("Malformed key.");
+        return new YarPrivateKey(n, e, d, p, q, dP, dQ, qInv);
+    }
+
+    private static void checkAlgorithm(ByteBuffer sequence) {
+        //AlgorithmIdentifier ::= SEQUENCE {
+        //    algorithm OBJECT IDENTIFIER,
+        //    parameters ANY DEFINED BY algorithm OPTIONAL
+        //}
+        //The NULL parameters of rsaEncryption are omitted by some encoders.
+        ByteBuffer algorithm = Der.read(sequence, Der.SEQUENCE);
+        ByteBuffer oid = Der.read(algorithm, Der.OBJECT_IDENTIFIER);
+        if (!oid.equals(ByteBuffer.wrap(RSA_ENCRYPTION, 4, 9))
+                || (algorithm.hasRemaining() && Der.read(algorithm, Der.NULL).hasRemaining())
+                || algorithm.hasRemaining())
+            throw new IllegalArgumentException("Not an RSA key.");
+    }
+
+    /**
+     * @param key RSA public key
+     * @return PKCS #1 RSAPublicKey DER encoding
+     */
+    public static byte[] encodePkcs1(RSAPublicKey key) {
+        return Der.encode(Der.SEQUENCE, Der.integers(key.getModulus(), key.getPublicExponent()));
+    }
+
+    /**
+     * @param key RSA private key in the CRT form
+     * @return PKCS #1 RSAPrivateKey DER encoding
+     */
+    public static byte[] encodePkcs1(RSAPrivateCrtKey key) {
+        return Der.encode(Der.SEQUENCE, Der.integers(BigInteger.ZERO, key.getModulus(), key.getPublicExponent(),
+                key.getPrivateExponent(), key.getPrimeP(), key.getPrimeQ(), key.getPrimeExponentP(),
+                key.getPrimeExponentQ(), key.getCrtCoefficient()));
+    }
+
+    /**
+     * @param key RSA public key
+     * @return X.509 SubjectPublicKeyInfo DER encoding
+     */
+    public static byte[] encodeX509(RSAPublicKey key) {
+        byte[] publicKey = encodePkcs1(key);
+        byte[] bits = new byte[publicKey.length + 1];
+        System.arraycopy(publicKey, 0, bits, 1, publicKey.length);
+
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        contents.write(RSA_ENCRYPTION, 0, RSA_ENCRYPTION.length);
+        Der.write(contents, Der.BIT_STRING, bits);
+        return Der.encode(Der.SEQUENCE, contents.toByteArray());
+    }
+
+    /**
+     * @param key RSA private key in the CRT form
+     * @return PKCS #8 PrivateKeyInfo DER encoding
+     */
+    public static byte[] encodePkcs8(RSAPrivateCrtKey key) {
+        ByteArrayOutputStream contents = new ByteArrayOutputStream();
+        Der.write(contents, Der.INTEGER, new byte[]{0});
+        contents.write(RSA_ENCRYPTION, 0, RSA_ENCRYPTION.length);
+        Der.write(contents, Der.OCTET_STRING, encodePkcs1(key));
+        return Der.encode(Der.SEQUENCE, contents.toByteArray());
+    }
+}
@@ -1,21 +1,38 @@
 package com.oviron.yar.keys;
 
+import com.oviron.yar.Yar;
+import com.oviron.yar.YarMetrics;
+
 import java.math.BigInteger;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
-import java.util.Random;
+import java.security.SecureRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A key pair generator.
+ * <p/>
+ * The primes p and q are searched concurrently, q on a background thread while the calling
+ * thread searches p, each with a small-prime sieve in front of the probabilistic primality test.
+ * Their two top bits are set, so the modulus always has the requested length and no pair is
+ * ever rejected for it.
  *
  * @author Oviron
  */
 public class YarKeyPairGenerator {
     private static final int DEFAULT_KEY_LENGTH = 2048;
-    private static final int DEFAULT_CERTAINITY = 80;
     private static final BigInteger ONE = BigInteger.ONE;
-    private static final BigInteger e = BigInteger.valueOf(65537L);
-    private static final Random random = new Random();
+    private static final int E = 65537;
+    private static final BigInteger e = BigInteger.valueOf(E);
+    private static final SecureRandom random = new SecureRandom();
+    private static ExecutorService executor;
 
     /**
      * Generates an RSA keypair with Default key length 2048 bits.
@@ -26,46 +43,135 @@ public class YarKeyPairGenerator {
         return generateKeyPair(DEFAULT_KEY_LENGTH);
     }
 
+    /**
+     * Generates an RSA keypair of the given length.
+     *
+     * @param keyLength desired key length in bits.
+     * @return an RSA keypair.
+     */
+    public static YarKeyPair generateKeyPair(int keyLength) {
+        return generateKeyPair(keyLength, random);
+    }
+
+    /**
+     * Generates an RSA keypair of the given length, searching q on a shared daemon thread pool.
+     *
+     * @param keyLength desired key length in bits.
+     * @param random    source of randomness, it is used by two threads concurrently
+     * @return an RSA keypair.
+     */
+    public static YarKeyPair generateKeyPair(int keyLength, SecureRandom random) {
+        return generateKeyPair(keyLength, random, executor());
+    }
+
     /**
      * The algorithm used here is described in NESSIE final report book v0.15
      * https://www.cosic.esat.kuleuven.be/nessie/Bookv015.pdf
      *
      * @param keyLength desired key length in bits.
+     * @param random    source of randomness, it is used by two threads concurrently
+     * @param executor  executor searching q
      * @return an RSA keypair.
      */
-    public static YarKeyPair generateKeyPair(int keyLength) {
+    public static YarKeyPair generateKeyPair(int keyLength, final SecureRandom random, Executor executor) {
         if (keyLength < 1024)
             throw new IllegalArgumentException("" + keyLength);
+        if (random == null || executor == null)
+            throw new IllegalArgumentException("Random and executor must not be null.");
 
-        BigInteger p, q, n;
+        YarMetrics metrics = Yar.getMetrics();
+        if (metrics == YarMetrics.NONE)
+            return generate(keyLength, random, executor);
 
-        int primeLength = (keyLength + 1) / 2;
-        do {
-            //1. Generate a prime p of length [keyLength/2].
-            do {
-                p = new BigInteger(primeLength, DEFAULT_CERTAINITY, random);
-                //2. Check that GCD(e, p − 1) = 1. If not, goto step 1.
-            } while (!p.subtract(ONE).gcd(e).equals(ONE));
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            YarKeyPair keyPair = generate(keyLength, random, executor);
+            success = true;
+            return keyPair;
+        } finally {
+            metrics.record(YarMetrics.Operation.KEYGEN, keyLength, null, System.nanoTime() - start, success);
+        }
+    }
 
-            //3. Generate a prime q of length [keyLength/2].
-            do {
-                q = new BigInteger(primeLength, DEFAULT_CERTAINITY, random);
-                //4. Check that q != p. If not, goto step 3.
-                //5. Check that and GCD(e, q − 1) = 1. If not, goto step 3.
-            } while (q.equals(p) || !q.subtract(ONE).gcd(e).equals(ONE));
+    private static YarKeyPair generate(int keyLength, final SecureRandom random, Executor executor) {
+        //The lengths of p and q add up to keyLength, and as both have their two top bits set,
+        //n = p*q has length keyLength exactly (step 7 always holds).
+        final int pLength = (keyLength + 1) / 2;
+        final int qLength = keyLength / 2;
+        final int certainty = Primes.certainty(qLength);
 
-            //6. Set n = p*q.
-            n = q.multiply(p);
-            //7. Check that n has length ln. If not, goto step 1.
-        } while (n.bitLength() != keyLength);
+        //3. Generate a prime q of length [keyLength/2].
+        //5. Check that GCD(e, q − 1) = 1. If not, goto step 3.
+        FutureTask<BigInteger> qSearch = new FutureTask<>(new Callable<BigInteger>() {
+            @Override
+            public BigInteger call() {
+                return Primes.find(qLength, E, certainty, random);
+            }
+        });
+        try {
+            executor.execute(qSearch);
+        } catch (RejectedExecutionException ex) {
+            //Search q on the calling thread after p.
+        }
 
+        //1. Generate a prime p of length [keyLength/2].
+        //2. Check that GCD(e, p − 1) = 1. If not, goto step 1.
+        BigInteger p = Primes.find(pLength, E, certainty, random);
+        BigInteger q = join(qSearch);
+
+        //4. Check that q != p. If not, goto step 3.
+        while (q.equals(p))
+            q = Primes.find(qLength, E, certainty, random);
+
+        //6. Set n = p*q.
         //9. Set d ≡ e^(−1) mod (p − 1)(q − 1).
         BigInteger d = e.modInverse(p.subtract(ONE).multiply(q.subtract(ONE)));
 
         //10. Output the public key and the secret key.
-        RSAPublicKey publicKey = new YarPublicKey(n, e);
         RSAPrivateKey privateKey = new YarPrivateKey(p, q, e, d);
+        RSAPublicKey publicKey = new YarPublicKey(privateKey.getModulus(), e);
 
         return new YarKeyPair(publicKey, privateKey);
     }
-}
\ No newline at end of file
+
+    private static synchronized ExecutorService executor() {
+        if (executor == null)
+            executor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "yar-keygen");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        return executor;
+    }
+
+    /**
+     * Waits for the search. A search the executor has not started yet is run on the calling thread.
+     */
+    private static BigInteger join(FutureTask<BigInteger> search) {
+        search.run();
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return search.get();
+                } catch (InterruptedException ex) {
+                    interrupted = true;
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof RuntimeException)
+                        throw (RuntimeException) ex.getCause();
+                    if (ex.getCause() instanceof Error)
+                        throw (Error) ex.getCause();
+                    throw new IllegalStateException(ex.getCause());
+                }
+            }
+        } finally {
+            if (interrupted)
+                Thread.currentThread().interrupt();
+        }
+    }
+}
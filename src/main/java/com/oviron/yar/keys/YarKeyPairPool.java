@@ -0,0 +1,183 @@
+package com.oviron.yar.keys;
+
+import java.security.SecureRandom;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of key pairs generated ahead of time, so that issuing a key does not wait for the prime search.
+ * <p/>
+ * Every pooled key length has its own depth. The pool is filled in the background up to the depth
+ * on creation, and every key taken triggers the generation of a replacement. Taking a key of a pooled
+ * length is a queue poll, only when the pool of that length is empty is the key generated on the
+ * calling thread. The generator threads are daemons and terminate after staying idle for the keep-alive
+ * time, they are started again by the next refill.
+ *
+ * @author Oviron
+ */
+public class YarKeyPairPool {
+    private static final int DEFAULT_THREADS = 1;
+    private static final long DEFAULT_KEEP_ALIVE_SECONDS = 60;
+
+    private final Map<Integer, Slot> slots = new HashMap<>();
+    private final ThreadPoolExecutor generators;
+    private final SecureRandom random;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Creates a pool with one generator thread, idle for at most a minute.
+     *
+     * @param depths number of ready key pairs to hold per key length in bits
+     */
+    public YarKeyPairPool(Map<Integer, Integer> depths) {
+        this(depths, DEFAULT_THREADS, DEFAULT_KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new SecureRandom());
+    }
+
+    /**
+     * @param depths    number of ready key pairs to hold per key length in bits
+     * @param threads   maximal number of generator threads
+     * @param keepAlive time an idle generator thread waits for a refill before it terminates
+     * @param unit      unit of keepAlive
+     * @param random    source of randomness of the generated keys
+     */
+    public YarKeyPairPool(Map<Integer, Integer> depths, int threads, long keepAlive, TimeUnit unit,
+                          SecureRandom random) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Thread count " + threads + " is not positive.");
+        if (random == null)
+            throw new IllegalArgumentException("Random is null.");
+        for (Map.Entry<Integer, Integer> depth : depths.entrySet()) {
+            if (depth.getKey() < 1024)
+                throw new IllegalArgumentException("Key length " + depth.getKey() + " is less than 1024.");
+            if (depth.getValue() < 1)
+                throw new IllegalArgumentException("Depth " + depth.getValue() + " is not positive.");
+            slots.put(depth.getKey(), new Slot(depth.getKey(), depth.getValue()));
+        }
+
+        this.random = random;
+        this.generators = new ThreadPoolExecutor(threads, threads, keepAlive, unit,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "yar-key-pool");
+                thread.setDaemon(true);
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        this.generators.allowCoreThreadTimeOut(true);
+
+        for (Slot slot : slots.values())
+            slot.refill();
+    }
+
+    /**
+     * Takes a ready key pair of the given length, or generates one on the calling thread
+     * if none is ready or the length is not pooled.
+     *
+     * @param keyLength key length in bits
+     * @return an RSA keypair
+     */
+    public YarKeyPair take(int keyLength) {
+        Slot slot = slots.get(keyLength);
+        YarKeyPair keyPair = slot == null ? null : slot.ready.poll();
+
+        if (keyPair != null)
+            hits.incrementAndGet();
+        else
+            misses.incrementAndGet();
+        if (slot != null)
+            slot.refill();
+
+        return keyPair != null ? keyPair : YarKeyPairGenerator.generateKeyPair(keyLength, random);
+    }
+
+    /**
+     * @return number of key pairs taken ready from the pool
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return number of key pairs generated on the calling thread because none was ready
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @param keyLength key length in bits
+     * @return number of ready key pairs of the given length, 0 for a length that is not pooled
+     */
+    public int getDepth(int keyLength) {
+        Slot slot = slots.get(keyLength);
+        return slot == null ? 0 : slot.ready.size();
+    }
+
+    /**
+     * Stops the generation of key pairs. Key pairs ready before can still be taken.
+     */
+    public void shutdown() {
+        generators.shutdownNow();
+    }
+
+    /**
+     * Ready key pairs of one length.
+     */
+    private class Slot {
+        final int keyLength;
+        final int depth;
+        final BlockingQueue<YarKeyPair> ready;
+        final AtomicInteger pending = new AtomicInteger();
+
+        Slot(int keyLength, int depth) {
+            this.keyLength = keyLength;
+            this.depth = depth;
+            this.ready = new ArrayBlockingQueue<>(depth);
+        }
+
+        /**
+         * Schedules the generation of the key pairs missing up to the depth,
+         * counting those scheduled already.
+         */
+        void refill() {
+            while (true) {
+                int scheduled = pending.get();
+                if (ready.size() + scheduled >= depth)
+                    return;
+                if (!pending.compareAndSet(scheduled, scheduled + 1))
+                    continue;
+
+                try {
+                    generators.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                ready.offer(YarKeyPairGenerator.generateKeyPair(keyLength, random));
+                            } finally {
+                                pending.decrementAndGet();
+                            }
+                            //A take between the offer and the decrement counted the new pair
+                            //twice and scheduled nothing, top the slot up now that it is counted once.
+                            refill();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    pending.decrementAndGet();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.oviron.yar.keys;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Read-only store of many keys in a single memory-mapped file.
+ * <p/>
+ * Opening a store maps the file and reads its header only, whatever the number of keys.
+ * Keys are looked up by their {@link KeyFingerprint} with a binary search over the index
+ * in the mapped file, and decoded on first use. The most recently used decoded keys are
+ * kept in a bounded cache, so the heap taken by decoded keys depends on the cache size,
+ * not on the number of keys. Private keys are stored with their CRT components, so decoding
+ * them computes nothing. Instances are thread-safe.
+ * <p/>
+ * The store format is
+ * <pre>
+ *     "RSAS" || count (4 octets) || index entry || ... || encoded key || ...
+ *     index entry = fingerprint (32 octets) || type (1 octet) || offset (8 octets) || length (4 octets)
+ * </pre>
+ * where the index entries are sorted by fingerprint and type, the type is the fourth magic
+ * octet of the key format and the offset is counted from the start of the file.
+ * A store is limited to 2 GiB, the size of a single mapping.
+ *
+ * @author Oviron
+ */
+public class YarKeyStore {
+    private static final byte[] MAGIC = {
+            0x52, //R
+            0x53, //S
+            0x41, //A
+            0x53  //(S)tore
+    };
+    private static final byte PUBLIC = 0x50;
+    private static final byte PRIVATE = 0x4b;
+    private static final int HEADER_LENGTH = 8;
+    private static final int ENTRY_LENGTH = KeyFingerprint.LENGTH + 1 + 8 + 4;
+
+    private final ByteBuffer mapped;
+    private final int count;
+    private final Map<IndexEntry, RSAKey> cache;
+
+    private YarKeyStore(ByteBuffer mapped, final int cacheSize) {
+        this.mapped = mapped;
+        this.count = mapped.getInt(4);
+        this.cache = new LinkedHashMap<IndexEntry, RSAKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<IndexEntry, RSAKey> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Writes the keys into a new store file, replacing an existing one.
+     * Keys of other implementations are converted to YAR keys, private keys must be CRT keys.
+     *
+     * @param path file of the store
+     * @param keys public and private keys, at most one of each type per modulus
+     * @throws IOException if writing the file fails
+     */
+    public static void write(Path path, Collection<? extends RSAKey> keys) throws IOException {
+        List<IndexEntry> entries = new ArrayList<>(keys.size());
+        List<byte[]> encoded = new ArrayList<>(keys.size());
+        for (RSAKey key : keys) {
+            byte[] octets = encode(key);
+            entries.add(new IndexEntry(KeyFingerprint.of(key), octets[3], encoded.size()));
+            encoded.add(octets);
+        }
+        Collections.sort(entries);
+
+        long offset = HEADER_LENGTH + (long) ENTRY_LENGTH * entries.size();
+        ByteBuffer index = ByteBuffer.allocate(ENTRY_LENGTH * entries.size());
+        IndexEntry previous = null;
+        for (IndexEntry entry : entries) {
+            if (entry.equals(previous))
+                throw new IllegalArgumentException("Duplicate key " + entry.fingerprint + ".");
+            previous = entry;
+
+            byte[] octets = encoded.get(entry.position);
+            index.put(entry.fingerprint.getBytes()).put(entry.type).putLong(offset).putInt(octets.length);
+            offset += octets.length;
+        }
+        if (offset > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Store too large.");
+        index.flip();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+            header.put(MAGIC).putInt(entries.size()).flip();
+            writeFully(channel, header);
+            writeFully(channel, index);
+            for (IndexEntry entry : entries)
+                writeFully(channel, ByteBuffer.wrap(encoded.get(entry.position)));
+        }
+    }
+
+    /**
+     * Opens a store file, mapping it into memory.
+     *
+     * @param path      file of the store
+     * @param cacheSize maximal number of decoded keys kept
+     * @return key store
+     * @throws IOException if mapping the file fails
+     */
+    public static YarKeyStore open(Path path, int cacheSize) throws IOException {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("Cache size " + cacheSize + " is negative.");
+
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IllegalArgumentException("Store too large.");
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (mapped.limit() < HEADER_LENGTH)
+            throw new IllegalArgumentException("Malformed key store.");
+        for (int i = 0; i < MAGIC.length; i++)
+            if (mapped.get(i) != MAGIC[i])
+                throw new IllegalArgumentException("Malformed key store.");
+        int count = mapped.getInt(MAGIC.length);
+        if (count < 0 || HEADER_LENGTH + (long) ENTRY_LENGTH * count > mapped.limit())
+            throw new IllegalArgumentException("Malformed key store.");
+
+        return new YarKeyStore(mapped, cacheSize);
+    }
+
+    /**
+     * @return number of keys in the store
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param fingerprint fingerprint of the key
+     * @return public key, or null if the store holds none with the fingerprint
+     */
+    public RSAPublicKey getPublicKey(KeyFingerprint fingerprint) {
+        return (RSAPublicKey) get(new IndexEntry(fingerprint, PUBLIC, -1));
+    }
+
+    /**
+     * @param fingerprint fingerprint of the key
+     * @return private key, or null if the store holds none with the fingerprint
+     */
+    public RSAPrivateCrtKey getPrivateKey(KeyFingerprint fingerprint) {
+        return (RSAPrivateCrtKey) get(new IndexEntry(fingerprint, PRIVATE, -1));
+    }
+
+    private RSAKey get(IndexEntry entry) {
+        synchronized (cache) {
+            RSAKey key = cache.get(entry);
+            if (key != null)
+                return key;
+        }
+
+        int position = find(entry);
+        if (position < 0)
+            return null;
+
+        //Absolute reads of the shared mapping are thread-safe, a view is needed for the relative ones.
+        int offset = (int) mapped.getLong(position + KeyFingerprint.LENGTH + 1);
+        int length = mapped.getInt(position + KeyFingerprint.LENGTH + 1 + 8);
+        ByteBuffer encoded = mapped.duplicate();
+        encoded.limit(offset + length).position(offset);
+        RSAKey key = entry.type == PUBLIC ? YarPublicKey.valueOf(encoded) : YarPrivateKey.valueOf(encoded);
+
+        synchronized (cache) {
+            cache.put(entry, key);
+        }
+        return key;
+    }
+
+    /**
+     * Binary search of the index.
+     *
+     * @return position of the index entry in the mapping, or -1 if there is none
+     */
+    private int find(IndexEntry entry) {
+        byte[] fingerprint = entry.fingerprint.getBytes();
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = HEADER_LENGTH + middle * ENTRY_LENGTH;
+
+            int comparison = 0;
+            for (int i = 0; i < KeyFingerprint.LENGTH && comparison == 0; i++)
+                comparison = (mapped.get(position + i) & 0xff) - (fingerprint[i] & 0xff);
+            if (comparison == 0)
+                comparison = mapped.get(position + KeyFingerprint.LENGTH) - entry.type;
+
+            if (comparison < 0)
+                low = middle + 1;
+            else if (comparison > 0)
+                high = middle - 1;
+            else
+                return position;
+        }
+        return -1;
+    }
+
+    private static byte[] encode(RSAKey key) {
+        if (key instanceof YarPublicKey || key instanceof YarPrivateKey)
+            return ((YarKey) key).getEncoded();
+        if (key instanceof RSAPublicKey)
+            return new YarPublicKey(key.getModulus(), ((RSAPublicKey) key).getPublicExponent()).getEncoded();
+        if (key instanceof RSAPrivateCrtKey) {
+            RSAPrivateCrtKey k = (RSAPrivateCrtKey) key;
+            return new YarPrivateKey(k.getModulus(), k.getPublicExponent(), k.getPrivateExponent(),
+                    k.getPrimeP(), k.getPrimeQ(), k.getPrimeExponentP(), k.getPrimeExponentQ(),
+                    k.getCrtCoefficient()).getEncoded();
+        }
+        throw new IllegalArgumentException("Only public keys and private CRT keys can be stored.");
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    /**
+     * Index entry, also the key of the cache.
+     */
+    private static class IndexEntry implements Comparable<IndexEntry> {
+        final KeyFingerprint fingerprint;
+        final byte type;
+        final int position;
+
+        IndexEntry(KeyFingerprint fingerprint, byte type, int position) {
+            this.fingerprint = fingerprint;
+            this.type = type;
+            this.position = position;
+        }
+
+        @Override
+        public int compareTo(IndexEntry other) {
+            int comparison = fingerprint.compareTo(other.fingerprint);
+            return comparison != 0 ? comparison : type - other.type;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof IndexEntry && compareTo((IndexEntry) obj) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return fingerprint.hashCode() * 31 + type;
+        }
+    }
+}
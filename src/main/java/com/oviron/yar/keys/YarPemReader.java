@@ -0,0 +1,107 @@
+package com.oviron.yar.keys;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Reads RSA keys from PEM text, one block at a time.
+ * <p/>
+ * The blocks "RSA PUBLIC KEY" and "RSA PRIVATE KEY" (PKCS #1), "PRIVATE KEY" (PKCS #8) and
+ * "PUBLIC KEY" (X.509 SubjectPublicKeyInfo) are decoded into YAR keys, see {@link YarKeyFormats}.
+ * Text outside blocks and blocks of other types, such as certificates, are skipped. Only the
+ * block being read is held in memory, so bundles of any number of keys are read in a single pass.
+ *
+ * @author Oviron
+ */
+public class YarPemReader implements Closeable {
+    private static final String BEGIN = "-----BEGIN ";
+    private static final String END = "-----END ";
+    private static final String DASHES = "-----";
+
+    private final BufferedReader reader;
+    private final Pem.Decoder decoder = new Pem.Decoder();
+
+    /**
+     * @param in PEM text in US-ASCII or a compatible charset
+     */
+    public YarPemReader(InputStream in) {
+        this(new InputStreamReader(in, Charset.forName("US-ASCII")));
+    }
+
+    /**
+     * @param reader PEM text
+     */
+    public YarPemReader(Reader reader) {
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+    }
+
+    /**
+     * Reads the next key.
+     *
+     * @return {@link YarPublicKey} or {@link YarPrivateKey}, null at the end of the text
+     * @throws IOException if reading fails or the text ends within a block
+     */
+    public RSAKey read() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (!line.startsWith(BEGIN) || !line.endsWith(DASHES))
+                continue;
+
+            String label = line.substring(BEGIN.length(), line.length() - DASHES.length());
+            boolean key = label.equals(Pem.PUBLIC_KEY) || label.equals(Pem.PRIVATE_KEY)
+                    || label.equals(Pem.RSA_PUBLIC_KEY) || label.equals(Pem.RSA_PRIVATE_KEY);
+            if (label.equals(Pem.ENCRYPTED_PRIVATE_KEY))
+                throw new IllegalArgumentException("Encrypted keys are not supported.");
+
+            byte[] der = readBlock(label, key);
+            if (key)
+                return decode(label, der);
+        }
+        return null;
+    }
+
+    private byte[] readBlock(String label, boolean decode) throws IOException {
+        String end = END + label + DASHES;
+        //A block abandoned by an error leaves no octets behind for this one.
+        decoder.reset();
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.equals(end))
+                return decoder.finish();
+            if (!decode)
+                continue;
+            //RFC 1421 headers, present in OpenSSL's encrypted traditional format.
+            if (line.indexOf(':') != -1) {
+                if (line.startsWith("Proc-Type:") && line.contains("ENCRYPTED"))
+                    throw new IllegalArgumentException("Encrypted keys are not supported.");
+                continue;
+            }
+            decoder.update(line);
+        }
+        throw new EOFException("PEM block " + label + " is not terminated.");
+    }
+
+    private static RSAKey decode(String label, byte[] der) {
+        RSAKey key = YarKeyFormats.decode(der);
+        boolean isPrivate = label.equals(Pem.PRIVATE_KEY) || label.equals(Pem.RSA_PRIVATE_KEY);
+        if (isPrivate ? !(key instanceof RSAPrivateCrtKey) : !(key instanceof RSAPublicKey))
+            throw new IllegalArgumentException("PEM block " + label + " holds another type of key.");
+        return key;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -0,0 +1,108 @@
+package com.oviron.yar.keys;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
+import java.security.interfaces.RSAPublicKey;
+
+/**
+ * Writes RSA keys as PEM text, one block per key, readable by {@link YarPemReader} and OpenSSL.
+ *
+ * @author Oviron
+ */
+public class YarPemWriter implements Closeable, Flushable {
+    private static final int LINE_LENGTH = 64;
+
+    private final Writer writer;
+    private final char[] line = new char[LINE_LENGTH];
+
+    /**
+     * @param out destination of the PEM text
+     */
+    public YarPemWriter(OutputStream out) {
+        this(new OutputStreamWriter(out, Charset.forName("US-ASCII")));
+    }
+
+    /**
+     * @param writer destination of the PEM text
+     */
+    public YarPemWriter(Writer writer) {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+    }
+
+    /**
+     * Writes a public key as an X.509 "PUBLIC KEY" block or a private key as a PKCS #8 "PRIVATE KEY" block.
+     *
+     * @param key public key or private key in the CRT form
+     * @throws IOException if writing fails
+     */
+    public void write(RSAKey key) throws IOException {
+        if (key instanceof RSAPublicKey)
+            writeBlock(Pem.PUBLIC_KEY, YarKeyFormats.encodeX509((RSAPublicKey) key));
+        else
+            writeBlock(Pem.PRIVATE_KEY, YarKeyFormats.encodePkcs8(crtKey(key)));
+    }
+
+    /**
+     * Writes a key as a PKCS #1 "RSA PUBLIC KEY" or "RSA PRIVATE KEY" block.
+     *
+     * @param key public key or private key in the CRT form
+     * @throws IOException if writing fails
+     */
+    public void writePkcs1(RSAKey key) throws IOException {
+        if (key instanceof RSAPublicKey)
+            writeBlock(Pem.RSA_PUBLIC_KEY, YarKeyFormats.encodePkcs1((RSAPublicKey) key));
+        else
+            writeBlock(Pem.RSA_PRIVATE_KEY, YarKeyFormats.encodePkcs1(crtKey(key)));
+    }
+
+    private static RSAPrivateCrtKey crtKey(RSAKey key) {
+        if (!(key instanceof RSAPrivateCrtKey))
+            throw new IllegalArgumentException("Only public keys and private CRT keys can be written.");
+        return (RSAPrivateCrtKey) key;
+    }
+
+    private void writeBlock(String label, byte[] der) throws IOException {
+        writer.write("-----BEGIN " + label + "-----\n");
+
+        int length = 0;
+        for (int i = 0; i < der.length; i += 3) {
+            int remaining = der.length - i;
+            int bits = (der[i] & 0xff) << 16
+                    | (remaining > 1 ? (der[i + 1] & 0xff) << 8 : 0)
+                    | (remaining > 2 ? der[i + 2] & 0xff : 0);
+            line[length++] = Pem.ALPHABET[bits >>> 18];
+            line[length++] = Pem.ALPHABET[bits >>> 12 & 0x3f];
+            line[length++] = remaining > 1 ? Pem.ALPHABET[bits >>> 6 & 0x3f] : '=';
+            line[length++] = remaining > 2 ? Pem.ALPHABET[bits & 0x3f] : '=';
+            if (length == LINE_LENGTH) {
+                writer.write(line, 0, length);
+                writer.write('\n');
+                length = 0;
+            }
+        }
+        if (length > 0) {
+            writer.write(line, 0, length);
+            writer.write('\n');
+        }
+
+        writer.write("-----END " + label + "-----\n");
+    }
+
+    @Override
+    public void flush() throws IOException {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
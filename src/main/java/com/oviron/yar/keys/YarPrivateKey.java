@@ -1,17 +1,18 @@
 package com.oviron.yar.keys;
 
-import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.interfaces.RSAPrivateCrtKey;
 import java.security.interfaces.RSAPrivateKey;
-import java.util.Arrays;
 
 /**
  * @author Oviron
  */
 
 public class YarPrivateKey extends YarKey implements RSAPrivateCrtKey {
+    private static final byte TYPE = 0x4b; //Private (K)ey
+    private static final int VERSION = 2;
+
     private final BigInteger p;
     private final BigInteger q;
     private final BigInteger d;
@@ -29,53 +30,75 @@ public class YarPrivateKey extends YarKey implements RSAPrivateCrtKey {
         this.qInv = q.modInverse(p);
     }
 
+    /**
+     * Creates a key from all its components, computing nothing.
+     *
+     * @param n    modulus
+     * @param e    public exponent
+     * @param d    private exponent
+     * @param p    first factor
+     * @param q    second factor
+     * @param dP   first factor’s CRT exponent, d mod (p – 1)
+     * @param dQ   second factor’s CRT exponent, d mod (q – 1)
+     * @param qInv CRT coefficient, q^(–1) mod p
+     */
+    public YarPrivateKey(BigInteger n, BigInteger e, BigInteger d, BigInteger p, BigInteger q,
+                         BigInteger dP, BigInteger dQ, BigInteger qInv) {
+        super(n, e);
+        this.d = d;
+        this.p = p;
+        this.q = q;
+        this.dP = dP;
+        this.dQ = dQ;
+        this.qInv = qInv;
+    }
+
     public static YarPrivateKey valueOf(byte[] encoded) {
-        int i = 0;
-
-        if (encoded[i++] != 0x52 //R
-                || encoded[i++] != 0x53 //S
-                || encoded[i++] != 0x41 //A
-                || encoded[i++] != 0x4b //Private (K)ey
-                )
-            throw new IllegalArgumentException();
-
-        int l;
-        byte[] buffer;
-
-        BigInteger e;
-        BigInteger d;
-        BigInteger p;
-        BigInteger q;
-
-        //p
-        l = ByteBuffer.wrap(Arrays.copyOfRange(encoded, i, i + 4)).getInt();
-        i += 4;
-        buffer = Arrays.copyOfRange(encoded, i, i + l);
-        p = new BigInteger(buffer);
-        i += l;
-
-        //q
-        l = ByteBuffer.wrap(Arrays.copyOfRange(encoded, i, i + 4)).getInt();
-        i += 4;
-        buffer = Arrays.copyOfRange(encoded, i, i + l);
-        q = new BigInteger(buffer);
-        i += l;
-
-        //e
-        l = ByteBuffer.wrap(Arrays.copyOfRange(encoded, i, i + 4)).getInt();
-        i += 4;
-        buffer = Arrays.copyOfRange(encoded, i, i + l);
-        e = new BigInteger(buffer);
-        i += l;
-
-        //d
-        l = ByteBuffer.wrap(Arrays.copyOfRange(encoded, i, i + 4)).getInt();
-        i += 4;
-        buffer = Arrays.copyOfRange(encoded, i, i + l);
-        d = new BigInteger(buffer);
-        i += l;
-
-        return new YarPrivateKey(p, q, e, d);
+        return valueOf(ByteBuffer.wrap(encoded));
+    }
+
+    /**
+     * Decodes a key stored in a part of a larger array, without copying the part.
+     *
+     * @param encoded array containing the encoded key
+     * @param offset  offset of the encoded key in the array
+     * @param length  length of the encoded key
+     * @return private key
+     */
+    public static YarPrivateKey valueOf(byte[] encoded, int offset, int length) {
+        return valueOf(ByteBuffer.wrap(encoded, offset, length));
+    }
+
+    /**
+     * Decodes a key starting at the position of the buffer, which may be a direct or mapped one.
+     * Both the current format and the unversioned one, holding p, q, e and d only, are accepted.
+     *
+     * @param encoded buffer containing the encoded key, its position is moved past the key
+     * @return private key
+     */
+    public static YarPrivateKey valueOf(ByteBuffer encoded) {
+        switch (KeyCodec.readHeader(encoded, TYPE)) {
+            case 1: {
+                BigInteger p = KeyCodec.readInteger(encoded);
+                BigInteger q = KeyCodec.readInteger(encoded);
+                BigInteger e = KeyCodec.readInteger(encoded);
+                BigInteger d = KeyCodec.readInteger(encoded);
+                return new YarPrivateKey(p, q, e, d);
+            }
+            case VERSION: {
+                BigInteger n = KeyCodec.readInteger(encoded);
+                BigInteger e = KeyCodec.readInteger(encoded);
+                BigInteger d = KeyCodec.readInteger(encoded);
+                BigInteger p = KeyCodec.readInteger(encoded);
+                BigInteger q = KeyCodec.readInteger(encoded);
+                BigInteger dP = KeyCodec.readInteger(encoded);
+                BigInteger dQ = KeyCodec.readInteger(encoded);
+                BigInteger qInv = KeyCodec.readInteger(encoded);
+                return new YarPrivateKey(n, e, d, p, q, dP, dQ, qInv);
+            }
+            default:
+                throw new IllegalArgumentException("Unsupported key format version.");
+        }
     }
 
     @Override
@@ -108,42 +131,14 @@ public class YarPrivateKey extends YarKey implements RSAPrivateCrtKey {
         return qInv;
     }
 
+    /**
+     * Encodes the key with all its components, see {@link #valueOf(ByteBuffer)}.
+     *
+     * @return encoded key
+     */
     @Override
     public byte[] getEncoded() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer;
-        byte[] l;
-
-        baos.write(0x52); //R
-        baos.write(0x53); //S
-        baos.write(0x41); //A
-        baos.write(0x4b); //Private (K)ey
-
-        //p
-        buffer = p.toByteArray();
-        l = ByteBuffer.allocate(4).putInt(buffer.length).array();
-        baos.write(l, 0, l.length);
-        baos.write(buffer, 0, buffer.length);
-
-        //q
-        buffer = q.toByteArray();
-        l = ByteBuffer.allocate(4).putInt(buffer.length).array();
-        baos.write(l, 0, l.length);
-        baos.write(buffer, 0, buffer.length);
-
-        //e
-        buffer = e.toByteArray();
-        l = ByteBuffer.allocate(4).putInt(buffer.length).array();
-        baos.write(l, 0, l.length);
-        baos.write(buffer, 0, buffer.length);
-
-        //d
-        buffer = d.toByteArray();
-        l = ByteBuffer.allocate(4).putInt(buffer.length).array();
-        baos.write(l, 0, l.length);
-        baos.write(buffer, 0, buffer.length);
-
-        return baos.toByteArray();
+        return KeyCodec.encode(TYPE, VERSION, n, e, d, p, q, dP, dQ, qInv);
     }
 
     public boolean equals(Object obj) {
@@ -1,77 +1,55 @@
 package com.oviron.yar.keys;
 
-import java.io.ByteArrayOutputStream;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.security.interfaces.RSAPublicKey;
-import java.util.Arrays;
 
 /**
  * @author Oviron
  */
 
 public class YarPublicKey extends YarKey implements RSAPublicKey {
+    private static final byte TYPE = 0x50; //(P)ublic Key
+
     public YarPublicKey(BigInteger n, BigInteger e) {
         super(n, e);
     }
 
     public static YarPublicKey valueOf(byte[] encoded) {
-        int i = 0;
-
-        if (encoded[i++] != 0x52 //R
-                || encoded[i++] != 0x53 //S
-                || encoded[i++] != 0x41 //A
-                || encoded[i++] != 0x50 //(P)ublic Key
-                )
-            throw new IllegalArgumentException();
-
-        int l;
-        byte[] buffer;
+        return valueOf(ByteBuffer.wrap(encoded));
+    }
 
-        BigInteger modulus;
-        BigInteger exponent;
+    /**
+     * Decodes a key stored in a part of a larger array, without copying the part.
+     *
+     * @param encoded array containing the encoded key
+     * @param offset  offset of the encoded key in the array
+     * @param length  length of the encoded key
+     * @return public key
+     */
+    public static YarPublicKey valueOf(byte[] encoded, int offset, int length) {
+        return valueOf(ByteBuffer.wrap(encoded, offset, length));
+    }
 
-        //n
-        l = ByteBuffer.wrap(Arrays.copyOfRange(encoded, i, i + 4)).getInt();
-        i += 4;
-        buffer = Arrays.copyOfRange(encoded, i, i + l);
-        modulus = new BigInteger(buffer);
-        i += l;
+    /**
+     * Decodes a key starting at the position of the buffer, which may be a direct or mapped one.
+     *
+     * @param encoded buffer containing the encoded key, its position is moved past the key
+     * @return public key
+     */
+    public static YarPublicKey valueOf(ByteBuffer encoded) {
+        if (KeyCodec.readHeader(encoded, TYPE) != 1)
+            throw new IllegalArgumentException("Unsupported key format version.");
 
-        //e
-        l = ByteBuffer.wrap(Arrays.copyOfRange(encoded, i, i + 4)).getInt();
-        i += 4;
-        buffer = Arrays.copyOfRange(encoded, i, i + l);
-        exponent = new BigInteger(buffer);
-        i += l;
+        BigInteger modulus = KeyCodec.readInteger(encoded);
+        BigInteger exponent = KeyCodec.readInteger(encoded);
 
         return new YarPublicKey(modulus, exponent);
     }
 
     @Override
     public byte[] getEncoded() {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        byte[] buffer;
-        byte[] l;
-
-        baos.write(0x52); //R
-        baos.write(0x53); //S
-        baos.write(0x41); //A
-        baos.write(0x50); //(P)ublic Key
-
-        //n
-        buffer = n.toByteArray();
-        l = ByteBuffer.allocate(4).putInt(buffer.length).array();
-        baos.write(l, 0, l.length);
-        baos.write(buffer, 0, buffer.length);
-
-        //e
-        buffer = e.toByteArray();
-        l = ByteBuffer.allocate(4).putInt(buffer.length).array();
-        baos.write(l, 0, l.length);
-        baos.write(buffer, 0, buffer.length);
-
-        return baos.toByteArray();
+        return KeyCodec.encode(TYPE, 1, n, e);
     }
 
     public boolean equals(Object obj) {
@@ -1,7 +1,28 @@
 import com.oviron.yar.HashMethod;
+import com.oviron.yar.PaddingSource;
+import com.oviron.yar.SecurePaddingSource;
 import com.oviron.yar.Yar;
+import com.oviron.yar.YarBatch;
+import com.oviron.yar.YarBatchResult;
+import com.oviron.yar.YarCipher;
+import com.oviron.yar.YarMetrics;
+import com.oviron.yar.YarMetricsRecorder;
+import com.oviron.yar.YarOaepCipher;
+import com.oviron.yar.YarOperationStatistics;
+import com.oviron.yar.YarPssSigner;
+import com.oviron.yar.YarPssVerifier;
+import com.oviron.yar.YarSigner;
+import com.oviron.yar.YarSigningService;
+import com.oviron.yar.YarVerificationCache;
+import com.oviron.yar.YarVerifier;
+import com.oviron.yar.keys.KeyFingerprint;
 import com.oviron.yar.keys.YarKeyPair;
 import com.oviron.yar.keys.YarKeyPairGenerator;
+import com.oviron.yar.keys.YarKeyFormats;
+import com.oviron.yar.keys.YarKeyPairPool;
+import com.oviron.yar.keys.YarKeyStore;
+import com.oviron.yar.keys.YarPemReader;
+import com.oviron.yar.keys.YarPemWriter;
 import com.oviron.yar.keys.YarPrivateKey;
 import com.oviron.yar.keys.YarPublicKey;
 import org.junit.After;
@@ -9,8 +30,45 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.security.Signature;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.PSSParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.security.interfaces.RSAKey;
+import java.security.interfaces.RSAPrivateCrtKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
  * @author Oviron
@@ -40,6 +98,179 @@ public class TestYar {
         Assert.assertEquals(privateKey, YarPrivateKey.valueOf(privateKey.getEncoded()));
     }
 
+    @Test
+    public void testKeysEncodingFormats() {
+        byte[] encoded = privateKey.getEncoded();
+        byte[] store = new byte[encoded.length + 10];
+        System.arraycopy(encoded, 0, store, 7, encoded.length);
+        YarPrivateKey decoded = YarPrivateKey.valueOf(store, 7, encoded.length);
+        Assert.assertEquals(privateKey, decoded);
+        Assert.assertEquals(((YarPrivateKey) privateKey).getCrtCoefficient(), decoded.getCrtCoefficient());
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(encoded.length + publicKey.getEncoded().length);
+        direct.put(encoded).put(publicKey.getEncoded()).flip();
+        Assert.assertEquals(privateKey, YarPrivateKey.valueOf(direct));
+        Assert.assertEquals(publicKey, YarPublicKey.valueOf(direct));
+        Assert.assertFalse(direct.hasRemaining());
+
+        //The unversioned format without the CRT components.
+        YarPrivateKey key = (YarPrivateKey) privateKey;
+        ByteArrayOutputStream legacy = new ByteArrayOutputStream();
+        legacy.write(encoded, 0, 4);
+        for (BigInteger integer : new BigInteger[]{key.getPrimeP(), key.getPrimeQ(),
+                key.getPublicExponent(), key.getPrivateExponent()}) {
+            byte[] octets = integer.toByteArray();
+            legacy.write(ByteBuffer.allocate(4).putInt(octets.length).array(), 0, 4);
+            legacy.write(octets, 0, octets.length);
+        }
+        decoded = YarPrivateKey.valueOf(legacy.toByteArray());
+        Assert.assertEquals(privateKey, decoded);
+        Assert.assertEquals(key.getCrtCoefficient(), decoded.getCrtCoefficient());
+
+        try {
+            YarPrivateKey.valueOf(Arrays.copyOf(encoded, encoded.length - 1));
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testKeyStore() throws Exception {
+        List<RSAKey> keys = new ArrayList<>();
+        keys.add(publicKey);
+        keys.add(privateKey);
+        for (int i = 0; i < 5; i++)
+            keys.add(YarKeyPairGenerator.generateKeyPair(1024).getPublicKey());
+
+        File file = File.createTempFile("yar", ".store");
+        file.deleteOnExit();
+        YarKeyStore.write(file.toPath(), keys);
+
+        YarKeyStore store = YarKeyStore.open(file.toPath(), 2);
+        Assert.assertEquals(keys.size(), store.size());
+        for (RSAKey key : keys)
+            Assert.assertEquals(key, key instanceof RSAPublicKey
+                    ? store.getPublicKey(KeyFingerprint.of(key))
+                    : store.getPrivateKey(KeyFingerprint.of(key)));
+        Assert.assertSame(store.getPublicKey(KeyFingerprint.of(publicKey)),
+                store.getPublicKey(KeyFingerprint.of(publicKey)));
+        Assert.assertNull(store.getPrivateKey(KeyFingerprint.of(keys.get(2))));
+    }
+
+    @Test
+    public void testStandardKeyFormats() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(1024);
+        KeyPair jca = generator.generateKeyPair();
+
+        RSAKey decodedPublic = YarKeyFormats.decode(jca.getPublic().getEncoded());
+        RSAKey decodedPrivate = YarKeyFormats.decode(jca.getPrivate().getEncoded());
+        Assert.assertTrue(decodedPublic instanceof YarPublicKey);
+        Assert.assertEquals(decodedPublic, jca.getPublic());
+        Assert.assertEquals(((RSAPrivateCrtKey) jca.getPrivate()).getCrtCoefficient(),
+                ((RSAPrivateCrtKey) decodedPrivate).getCrtCoefficient());
+
+        KeyFactory factory = KeyFactory.getInstance("RSA");
+        Assert.assertEquals(publicKey, factory.generatePublic(
+                new X509EncodedKeySpec(YarKeyFormats.encodeX509(publicKey))));
+        Assert.assertEquals(privateKey.getPrivateExponent(), ((RSAPrivateKey) factory.generatePrivate(
+                new PKCS8EncodedKeySpec(YarKeyFormats.encodePkcs8((RSAPrivateCrtKey) privateKey)))).getPrivateExponent());
+
+        ByteArrayOutputStream pem = new ByteArrayOutputStream();
+        YarPemWriter writer = new YarPemWriter(pem);
+        writer.write(publicKey);
+        writer.write(privateKey);
+        writer.writePkcs1(publicKey);
+        writer.writePkcs1(privateKey);
+        writer.flush();
+
+        YarPemReader reader = new YarPemReader(new ByteArrayInputStream(pem.toByteArray()));
+        for (int i = 0; i < 2; i++) {
+            Assert.assertEquals(publicKey, reader.read());
+            Assert.assertEquals(privateKey, reader.read());
+        }
+        Assert.assertNull(reader.read());
+
+        //A malformed or truncated block leaves nothing behind for the next one.
+        String malformed = "-----BEGIN PUBLIC KEY-----\nQR\n-----END PUBLIC KEY-----\n"
+                + "-----BEGIN PUBLIC KEY-----\nMIIBA\n-----END PUBLIC KEY-----\n"
+                + "-----BEGIN PUBLIC KEY-----\nMIIB\n!\n-----END PUBLIC KEY-----\n";
+        reader = new YarPemReader(new ByteArrayInputStream((malformed + pem.toString()).getBytes()));
+        for (int i = 0; i < 3; i++) {
+            try {
+                reader.read();
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+        Assert.assertEquals(publicKey, reader.read());
+
+        ByteArrayOutputStream der = new ByteArrayOutputStream();
+        der.write(YarKeyFormats.encodePkcs1(publicKey));
+        der.write(YarKeyFormats.encodePkcs8((RSAPrivateCrtKey) privateKey));
+        ByteArrayInputStream in = new ByteArrayInputStream(der.toByteArray());
+        Assert.assertEquals(publicKey, YarKeyFormats.read(in));
+        Assert.assertEquals(privateKey, YarKeyFormats.read(in));
+        Assert.assertNull(YarKeyFormats.read(in));
+
+        //A declared length of 2 GiB must not be allocated up front.
+        try {
+            YarKeyFormats.read(new ByteArrayInputStream(new byte[]{0x30, (byte) 0x84, 0x7f, (byte) 0xff, (byte) 0xff, (byte) 0xff}));
+            Assert.fail();
+        } catch (EOFException e) {
+            //expected
+        }
+
+        //The wrapped key must match the wrapper.
+        byte[] rsaEncryption = {
+                0x30, 0x0d,
+                0x06, 0x09, 0x2a, (byte) 0x86, 0x48, (byte) 0x86, (byte) 0xf7, 0x0d, 0x01, 0x01, 0x01,
+                0x05, 0x00
+        };
+        ByteArrayOutputStream bits = new ByteArrayOutputStream();
+        bits.write(0);
+        bits.write(YarKeyFormats.encodePkcs1((RSAPrivateCrtKey) privateKey));
+        byte[] pkcs1 = YarKeyFormats.encodePkcs1((RSAPrivateCrtKey) privateKey);
+        byte[] trailing = der(0x30, concat(Arrays.copyOfRange(pkcs1, 4, pkcs1.length), new byte[]{0x02, 0x01, 0x00}));
+        byte[][] mismatched = {
+                der(0x30, concat(rsaEncryption, der(0x03, bits.toByteArray()))),
+                der(0x30, concat(new byte[]{0x02, 0x01, 0x00}, rsaEncryption, der(0x04, YarKeyFormats.encodePkcs1(publicKey)))),
+                //Trailing content in RSAPrivateKey, and a PrivateKeyInfo version other than 0.
+                trailing,
+                der(0x30, concat(new byte[]{0x02, 0x01, 0x00}, rsaEncryption, der(0x04, trailing))),
+                der(0x30, concat(new byte[]{0x02, 0x01, 0x01}, rsaEncryption, der(0x04, pkcs1)))
+        };
+        for (byte[] encoding : mismatched) {
+            try {
+                YarKeyFormats.decode(encoding);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+    }
+
+    private static byte[] der(int tag, byte[] contents) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(tag);
+        if (contents.length >= 0x80) {
+            out.write(0x82);
+            out.write(contents.length >>> 8);
+        }
+        out.write(contents.length);
+        out.write(contents, 0, contents.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts)
+            out.write(part, 0, part.length);
+        return out.toByteArray();
+    }
+
     @Test
     public void testEncryption() {
         byte[] encrypted = Yar.encrypt(message, publicKey);
@@ -81,4 +312,563 @@ public class TestYar {
         byte[] signature = Yar.sign(message, privateKey, HashMethod.SHA_512);
         Assert.assertTrue(Yar.verify(message, signature, publicKey, HashMethod.SHA_512));
     }
+
+    @Test
+    public void testPssSignature() throws Exception {
+        for (HashMethod hashMethod : new HashMethod[]{HashMethod.SHA_1, HashMethod.SHA_256, HashMethod.SHA_512}) {
+            byte[] signature = Yar.signPss(message.getBytes(), privateKey, hashMethod);
+            Assert.assertTrue(Yar.verifyPss(message.getBytes(), signature, publicKey, hashMethod));
+            Assert.assertFalse(Yar.verifyPss("Help the bombardier?".getBytes(), signature, publicKey, hashMethod));
+        }
+
+        //Salts make signatures differ, without a salt the signature is deterministic.
+        YarPssSigner signer = new YarPssSigner(privateKey, HashMethod.SHA_256);
+        Assert.assertFalse(Arrays.equals(signer.sign(message.getBytes()), signer.sign(message.getBytes())));
+        YarPssSigner deterministic = new YarPssSigner(privateKey, HashMethod.SHA_256, 0);
+        byte[] signature = deterministic.sign(message.getBytes());
+        Assert.assertArrayEquals(signature, deterministic.sign(message.getBytes()));
+        Assert.assertTrue(new YarPssVerifier(publicKey, HashMethod.SHA_256, 0).verify(message.getBytes(), signature));
+        Assert.assertFalse(new YarPssVerifier(publicKey, HashMethod.SHA_256).verify(message.getBytes(), signature));
+
+        YarPssVerifier verifier = new YarPssVerifier(publicKey, HashMethod.SHA_256);
+        byte[] out = new byte[signature.length + 5];
+        Assert.assertEquals(signature.length, signer.sign(message.getBytes(), 0, message.length(), out, 5));
+        Assert.assertTrue(verifier.verify(message.getBytes(), 0, message.length(), out, 5, signature.length));
+        verifier.update(message.getBytes());
+        Assert.assertTrue(verifier.verify(Arrays.copyOfRange(out, 5, out.length)));
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(message.getBytes());
+        Assert.assertTrue(verifier.verifyDigest(hash, signer.signDigest(hash)));
+        out[out.length - 1]++;
+        Assert.assertFalse(verifier.verify(message.getBytes(), 0, message.length(), out, 5, signature.length));
+        Assert.assertFalse(verifier.verify(message.getBytes(), Arrays.copyOf(signature, signature.length - 1)));
+
+        //Interoperability with the JCA provider, also with moduli of 8k + 1 bits, where emLen < k.
+        //Half of the signatures have a leading octet of 0x80 or more, many of them are checked.
+        for (int bits : new int[]{2048, 1025, 2049}) {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+            generator.initialize(bits);
+            KeyPair jca = generator.generateKeyPair();
+            RSAPrivateKey yarPrivate = (RSAPrivateKey) YarKeyFormats.decode(jca.getPrivate().getEncoded());
+            RSAPublicKey yarPublic = (RSAPublicKey) YarKeyFormats.decode(jca.getPublic().getEncoded());
+
+            Signature pss = Signature.getInstance("RSASSA-PSS");
+            pss.setParameter(new PSSParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256, 32, 1));
+            YarPssSigner yarSigner = new YarPssSigner(yarPrivate, HashMethod.SHA_256);
+            YarPssVerifier yarVerifier = new YarPssVerifier(yarPublic, HashMethod.SHA_256);
+            for (int i = 0; i < 32; i++) {
+                pss.initSign(jca.getPrivate());
+                pss.update(message.getBytes());
+                Assert.assertTrue(yarVerifier.verify(message.getBytes(), pss.sign()));
+                pss.initVerify(jca.getPublic());
+                pss.update(message.getBytes());
+                Assert.assertTrue(pss.verify(yarSigner.sign(message.getBytes())));
+            }
+        }
+    }
+
+    @Test
+    public void testKeyPairGeneration() {
+        for (int keyLength : new int[]{1024, 1025, 1536}) {
+            YarKeyPair kp = YarKeyPairGenerator.generateKeyPair(keyLength, new SecureRandom());
+            Assert.assertEquals(keyLength, kp.getPublicKey().getModulus().bitLength());
+            Assert.assertTrue(Yar.verify(message, Yar.sign(message, kp.getPrivateKey(), HashMethod.SHA_256),
+                    kp.getPublicKey(), HashMethod.SHA_256));
+        }
+    }
+
+    @Test
+    public void testKeyPairPool() throws Exception {
+        YarKeyPairPool pool = new YarKeyPairPool(Collections.singletonMap(1024, 2));
+        try {
+            for (int i = 0; i < 600 && pool.getDepth(1024) < 2; i++)
+                Thread.sleep(50);
+            Assert.assertEquals(2, pool.getDepth(1024));
+
+            Assert.assertEquals(1024, pool.take(1024).getPublicKey().getModulus().bitLength());
+            Assert.assertEquals(1, pool.getHitCount());
+            Assert.assertEquals(1032, pool.take(1032).getPublicKey().getModulus().bitLength());
+            Assert.assertEquals(1, pool.getMissCount());
+            Assert.assertEquals(0, pool.getDepth(1032));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testConcurrentUsage() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                final String text = message + i;
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        byte[] signature = Yar.sign(text, privateKey, HashMethod.SHA_256);
+                        byte[] decrypted = Yar.decrypt(Yar.encrypt(text, publicKey), privateKey);
+                        return Yar.verify(text, signature, publicKey, HashMethod.SHA_256)
+                                && text.equals(new String(decrypted));
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results)
+                Assert.assertTrue(result.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testContextsReuse() {
+        YarSigner signer = new YarSigner(privateKey, HashMethod.SHA_256);
+        YarVerifier verifier = new YarVerifier(publicKey, HashMethod.SHA_256);
+        YarCipher encryptor = new YarCipher(publicKey);
+        YarCipher decryptor = new YarCipher(privateKey);
+
+        for (int i = 0; i < 4; i++) {
+            String text = message + i;
+            byte[] signature = signer.sign(text);
+            Assert.assertArrayEquals(Yar.sign(text, privateKey, HashMethod.SHA_256), signature);
+            Assert.assertTrue(verifier.verify(text, signature));
+            Assert.assertFalse(verifier.verify(text + "!", signature));
+            Assert.assertArrayEquals(text.getBytes(), decryptor.decrypt(encryptor.encrypt(text)));
+        }
+    }
+
+    @Test
+    public void testSmallPublicExponent() {
+        BigInteger e = BigInteger.valueOf(3);
+        Random random = new Random();
+        BigInteger p, q;
+        do {
+            p = BigInteger.probablePrime(1024, random);
+        } while (!p.subtract(BigInteger.ONE).gcd(e).equals(BigInteger.ONE));
+        do {
+            q = BigInteger.probablePrime(1024, random);
+        } while (q.equals(p) || !q.subtract(BigInteger.ONE).gcd(e).equals(BigInteger.ONE));
+        BigInteger d = e.modInverse(p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE)));
+
+        RSAPublicKey smallPublicKey = new YarPublicKey(p.multiply(q), e);
+        RSAPrivateKey smallPrivateKey = new YarPrivateKey(p, q, e, d);
+
+        byte[] encrypted = Yar.encrypt(message, smallPublicKey);
+        Assert.assertArrayEquals(message.getBytes(), Yar.decrypt(encrypted, smallPrivateKey));
+
+        byte[] signature = Yar.sign(message, smallPrivateKey, HashMethod.SHA_256);
+        Assert.assertTrue(Yar.verify(message, signature, smallPublicKey, HashMethod.SHA_256));
+        Assert.assertFalse(Yar.verify(message + "!", signature, smallPublicKey, HashMethod.SHA_256));
+    }
+
+    @Test
+    public void testBlinding() {
+        YarSigner blinded = new YarSigner(privateKey, HashMethod.SHA_256);
+        Yar.disableBlinding();
+        YarSigner unblinded;
+        try {
+            unblinded = new YarSigner(privateKey, HashMethod.SHA_256);
+        } finally {
+            Yar.enableBlinding();
+        }
+
+        //The blinding factors are refreshed after every use, the signatures stay the same.
+        for (int i = 0; i < 5; i++) {
+            String m = message + i;
+            Assert.assertArrayEquals(unblinded.sign(m), blinded.sign(m));
+            Assert.assertArrayEquals(unblinded.sign(m), Yar.sign(m, privateKey, HashMethod.SHA_256));
+        }
+    }
+
+    @Test
+    public void testBatchOperations() throws Exception {
+        YarBatch batch = new YarBatch();
+        List<byte[]> messages = new ArrayList<>();
+        for (int i = 0; i < 32; i++)
+            messages.add((message + i).getBytes());
+
+        YarBatchResult<byte[]> signatures = batch.signAll(messages, privateKey, HashMethod.SHA_256);
+        Assert.assertEquals(0, signatures.getFailureCount());
+        List<byte[]> signatureList = signatures.getResults();
+        signatureList.set(3, signatureList.get(4));
+        YarBatchResult<Boolean> verified = batch.verifyAll(messages, signatureList, publicKey, HashMethod.SHA_256);
+        for (int i = 0; i < messages.size(); i++)
+            Assert.assertEquals(i != 3, verified.get(i));
+
+        List<byte[]> ciphertexts = batch.encryptAll(messages, publicKey).getResults();
+        ciphertexts.set(5, new byte[1]);
+        YarBatchResult<byte[]> decrypted = batch.decryptAll(ciphertexts, privateKey);
+        Assert.assertEquals(1, decrypted.getFailureCount());
+        Assert.assertTrue(decrypted.getFailure(5) instanceof IllegalArgumentException);
+        for (int i = 0; i < messages.size(); i++)
+            if (i != 5)
+                Assert.assertArrayEquals(messages.get(i), decrypted.get(i));
+    }
+
+    @Test
+    public void testParallelCrt() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Yar.enableParallelCrt(2048, executor);
+        try {
+            byte[] signature = Yar.sign(message, privateKey, HashMethod.SHA_256);
+            Assert.assertTrue(Yar.verify(message, signature, publicKey, HashMethod.SHA_256));
+
+            byte[] encrypted = Yar.encrypt(message, publicKey);
+            Assert.assertArrayEquals(message.getBytes(), Yar.decrypt(encrypted, privateKey));
+        } finally {
+            Yar.disableParallelCrt();
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSigningService() throws Exception {
+        YarSigningService service = new YarSigningService(8, 4, 10, TimeUnit.MILLISECONDS);
+        try {
+            List<Future<byte[]>> signatures = new ArrayList<>();
+            for (int i = 0; i < 16; i++)
+                signatures.add(service.sign((message + i).getBytes(), privateKey, HashMethod.SHA_256));
+
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 16; i++)
+                results.add(service.verify((message + i).getBytes(), signatures.get(i).get(), publicKey,
+                        i % 2 == 0 ? HashMethod.SHA_256 : HashMethod.SHA_1));
+            for (int i = 0; i < 16; i++)
+                Assert.assertEquals(i % 2 == 0, results.get(i).get());
+        } finally {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    public void testStreamingSignature() throws Exception {
+        byte[] data = new byte[300 * 1024];
+        new Random().nextBytes(data);
+        byte[] signature = Yar.sign(data, privateKey, HashMethod.SHA_256);
+
+        Assert.assertArrayEquals(signature,
+                Yar.sign(new ByteArrayInputStream(data), privateKey, HashMethod.SHA_256));
+        Assert.assertArrayEquals(signature,
+                Yar.sign(Channels.newChannel(new ByteArrayInputStream(data)), privateKey, HashMethod.SHA_256));
+        ByteBuffer direct = ByteBuffer.allocateDirect(data.length);
+        direct.put(data).flip();
+        Assert.assertArrayEquals(signature, Yar.sign(direct, privateKey, HashMethod.SHA_256));
+
+        File file = File.createTempFile("yar", ".bin");
+        file.deleteOnExit();
+        try {
+            Files.write(file.toPath(), data);
+            Assert.assertArrayEquals(signature, Yar.sign(file.toPath(), privateKey, HashMethod.SHA_256));
+            Assert.assertTrue(Yar.verify(file.toPath(), signature, publicKey, HashMethod.SHA_256));
+        } finally {
+            //A still mapped file cannot be deleted on some platforms, deleteOnExit covers that case.
+            file.delete();
+        }
+
+        Assert.assertTrue(Yar.verify(new ByteArrayInputStream(data), signature, publicKey, HashMethod.SHA_256));
+        data[0]++;
+        Assert.assertFalse(Yar.verify(new ByteArrayInputStream(data), signature, publicKey, HashMethod.SHA_256));
+    }
+
+    @Test
+    public void testIncrementalSignature() {
+        byte[] data = message.getBytes();
+        byte[] expected = Yar.sign(data, privateKey, HashMethod.SHA_512);
+
+        YarSigner signer = new YarSigner(privateKey, HashMethod.SHA_512);
+        YarVerifier verifier = new YarVerifier(publicKey, HashMethod.SHA_512);
+        for (int i = 0; i < 2; i++) {
+            signer.update(data, 0, 4);
+            signer.update(ByteBuffer.wrap(data, 4, 6));
+            signer.update(Arrays.copyOfRange(data, 10, data.length));
+            byte[] signature = signer.sign();
+            Assert.assertArrayEquals(expected, signature);
+
+            verifier.update(data, 0, 10);
+            verifier.update(ByteBuffer.wrap(data, 10, data.length - 10));
+            Assert.assertTrue(verifier.verify(signature));
+        }
+
+        signer.update(data);
+        signer.reset();
+        Assert.assertArrayEquals(expected, signer.sign(data));
+
+        verifier.update(data);
+        Assert.assertFalse(verifier.verify(new byte[1]));
+        Assert.assertTrue(verifier.verify(data, expected));
+    }
+
+    @Test
+    public void testDigestSignature() throws Exception {
+        byte[] hash = MessageDigest.getInstance("SHA-256").digest(message.getBytes());
+        byte[] signature = Yar.signDigest(hash, privateKey, HashMethod.SHA_256);
+        Assert.assertArrayEquals(Yar.sign(message, privateKey, HashMethod.SHA_256), signature);
+        Assert.assertTrue(Yar.verifyDigest(hash, signature, publicKey, HashMethod.SHA_256));
+        Assert.assertTrue(Yar.verify(message, signature, publicKey, HashMethod.SHA_256));
+
+        hash[0]++;
+        Assert.assertFalse(Yar.verifyDigest(hash, signature, publicKey, HashMethod.SHA_256));
+
+        try {
+            Yar.signDigest(hash, privateKey, HashMethod.SHA_1);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testCallerBuffers() {
+        byte[] data = message.getBytes();
+        int k = (publicKey.getModulus().bitLength() + 7) / 8;
+
+        YarCipher encryptor = new YarCipher(publicKey);
+        YarCipher decryptor = new YarCipher(privateKey);
+        byte[] ciphertext = new byte[k + 3];
+        Assert.assertEquals(k, encryptor.encrypt(data, 0, data.length, ciphertext, 3));
+        byte[] plaintext = new byte[data.length + 1];
+        Assert.assertEquals(data.length, decryptor.decrypt(ciphertext, 3, k, plaintext, 1));
+        Assert.assertArrayEquals(data, Arrays.copyOfRange(plaintext, 1, plaintext.length));
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(k);
+        Assert.assertEquals(k, encryptor.encrypt(ByteBuffer.wrap(data), direct));
+        direct.flip();
+        ByteBuffer decrypted = ByteBuffer.allocateDirect(k);
+        Assert.assertEquals(data.length, decryptor.decrypt(direct, decrypted));
+        decrypted.flip();
+        Assert.assertEquals(ByteBuffer.wrap(data), decrypted);
+
+        YarSigner signer = new YarSigner(privateKey, HashMethod.SHA_256);
+        YarVerifier verifier = new YarVerifier(publicKey, HashMethod.SHA_256);
+        byte[] signature = new byte[k + 2];
+        Assert.assertEquals(k, signer.sign(data, 0, data.length, signature, 2));
+        Assert.assertArrayEquals(Yar.sign(data, privateKey, HashMethod.SHA_256),
+                Arrays.copyOfRange(signature, 2, signature.length));
+        Assert.assertTrue(verifier.verify(data, 0, data.length, signature, 2, k));
+
+        ByteBuffer directSignature = ByteBuffer.allocateDirect(k);
+        Assert.assertEquals(k, signer.sign(ByteBuffer.wrap(data), directSignature));
+        directSignature.flip();
+        Assert.assertTrue(verifier.verify(ByteBuffer.wrap(data), directSignature));
+        directSignature.rewind();
+        Assert.assertFalse(verifier.verify(ByteBuffer.wrap(data, 1, data.length - 1), directSignature));
+
+        try {
+            signer.sign(data, 0, data.length, signature, 3);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testPaddingSource() {
+        PaddingSource fixed = new PaddingSource() {
+            @Override
+            public void nextNonZeroBytes(byte[] buffer, int offset, int length) {
+                Arrays.fill(buffer, offset, offset + length, (byte) 0x5a);
+            }
+        };
+        YarCipher encryptor = new YarCipher(publicKey, fixed);
+        byte[] ciphertext = encryptor.encrypt(message);
+        Assert.assertArrayEquals(ciphertext, encryptor.encrypt(message));
+        Assert.assertEquals(message, new String(Yar.decrypt(ciphertext, privateKey)));
+
+        Yar.setPaddingSource(fixed);
+        try {
+            Assert.assertArrayEquals(ciphertext, Yar.encrypt(message, publicKey));
+        } finally {
+            Yar.setPaddingSource(null);
+        }
+        Assert.assertFalse(Arrays.equals(ciphertext, Yar.encrypt(message, publicKey)));
+
+        PaddingSource secure = new SecurePaddingSource();
+        byte[] padding = new byte[100 * 1000];
+        secure.nextNonZeroBytes(padding, 0, padding.length);
+        for (byte b : padding)
+            Assert.assertTrue(b != 0);
+    }
+
+    @Test
+    public void testVerificationCache() throws Exception {
+        YarVerificationCache cache = new YarVerificationCache(64, 1, TimeUnit.HOURS);
+        byte[] signature = Yar.sign(message, privateKey, HashMethod.SHA_256);
+        byte[] forged = signature.clone();
+        forged[0]++;
+
+        Assert.assertTrue(cache.verify(message.getBytes(), signature, publicKey, HashMethod.SHA_256));
+        Assert.assertTrue(cache.verify(message.getBytes(), signature, publicKey, HashMethod.SHA_256));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertFalse(cache.verify(message.getBytes(), forged, publicKey, HashMethod.SHA_256));
+        Assert.assertFalse(cache.verify(message.getBytes(), forged, publicKey, HashMethod.SHA_256));
+        Assert.assertFalse(cache.verify("other".getBytes(), signature, publicKey, HashMethod.SHA_256));
+        Assert.assertEquals(1, cache.getHitCount());
+        Assert.assertEquals(1, cache.size());
+
+        //A key sharing the modulus but not the exponent must not be answered from the cache.
+        RSAPublicKey otherExponent = new YarPublicKey(publicKey.getModulus(),
+                publicKey.getPublicExponent().add(BigInteger.valueOf(2)));
+        Assert.assertFalse(cache.verify(message.getBytes(), signature, otherExponent, HashMethod.SHA_256));
+        Assert.assertEquals(1, cache.getHitCount());
+
+        YarVerificationCache expiring = new YarVerificationCache(64, 1, TimeUnit.MILLISECONDS);
+        Assert.assertTrue(expiring.verify(message.getBytes(), signature, publicKey, HashMethod.SHA_256));
+        Thread.sleep(5);
+        Assert.assertTrue(expiring.verify(message.getBytes(), signature, publicKey, HashMethod.SHA_256));
+        Assert.assertEquals(0, expiring.getHitCount());
+    }
+
+    @Test
+    public void testImplicitRejection() {
+        YarCipher decryptor = new YarCipher(privateKey);
+        byte[] zeros = new byte[40];
+        zeros[20] = 0x01;
+        Assert.assertArrayEquals(zeros, decryptor.decrypt(Yar.encrypt(zeros, publicKey)));
+
+        //Ciphertexts with an invalid padding decrypt to a message determined by the ciphertext.
+        byte[] c = BigInteger.valueOf(12345).modPow(publicKey.getPublicExponent(), publicKey.getModulus()).toByteArray();
+        byte[] invalid = new byte[(publicKey.getModulus().bitLength() + 7) / 8];
+        System.arraycopy(c, Math.max(0, c.length - invalid.length), invalid, Math.max(0, invalid.length - c.length),
+                Math.min(c.length, invalid.length));
+        byte[] synthetic = decryptor.decrypt(invalid);
+        Assert.assertArrayEquals(synthetic, Yar.decrypt(invalid, privateKey));
+        Assert.assertTrue(synthetic.length <= invalid.length - 11);
+
+        invalid[invalid.length - 1]++;
+        Assert.assertFalse(Arrays.equals(synthetic, decryptor.decrypt(invalid)));
+    }
+
+    @Test
+    public void testOaepEncryption() throws Exception {
+        for (HashMethod hashMethod : new HashMethod[]{HashMethod.SHA_1, HashMethod.SHA_256, HashMethod.SHA_512}) {
+            byte[] ciphertext = Yar.encryptOaep(message.getBytes(), publicKey, hashMethod);
+            Assert.assertEquals(message, new String(Yar.decryptOaep(ciphertext, privateKey, hashMethod)));
+        }
+
+        YarOaepCipher encryptor = new YarOaepCipher(publicKey, HashMethod.SHA_256);
+        YarOaepCipher decryptor = new YarOaepCipher(privateKey, HashMethod.SHA_256);
+        int maxLength = (publicKey.getModulus().bitLength() + 7) / 8 - 2 * 32 - 2;
+        for (int length : new int[]{0, 1, maxLength}) {
+            byte[] data = new byte[length];
+            new Random().nextBytes(data);
+            byte[] out = new byte[length + 3];
+            Assert.assertEquals(length, decryptor.decrypt(encryptor.encrypt(data), 0, maxLength + 66, out, 3));
+            Assert.assertArrayEquals(data, Arrays.copyOfRange(out, 3, out.length));
+        }
+        try {
+            encryptor.encrypt(new byte[maxLength + 1]);
+            Assert.fail();
+        } catch (IllegalArgumentException e) {
+            //expected
+        }
+
+        //Interoperability with the JCA provider, with MGF1 over the same hash function.
+        OAEPParameterSpec spec = new OAEPParameterSpec("SHA-256", "MGF1", MGF1ParameterSpec.SHA256,
+                PSource.PSpecified.DEFAULT);
+        Cipher jca = Cipher.getInstance("RSA/ECB/OAEPPadding");
+        jca.init(Cipher.ENCRYPT_MODE, KeyFactory.getInstance("RSA").generatePublic(
+                new X509EncodedKeySpec(YarKeyFormats.encodeX509(publicKey))), spec);
+        Assert.assertEquals(message, new String(decryptor.decrypt(jca.doFinal(message.getBytes()))));
+        jca.init(Cipher.DECRYPT_MODE, KeyFactory.getInstance("RSA").generatePrivate(
+                new PKCS8EncodedKeySpec(YarKeyFormats.encodePkcs8((RSAPrivateCrtKey) privateKey))), spec);
+        Assert.assertEquals(message, new String(jca.doFinal(encryptor.encrypt(message.getBytes()))));
+
+        //Tampered ciphertexts and a mismatching hash function fail with the same error.
+        byte[] ciphertext = encryptor.encrypt(message.getBytes());
+        ciphertext[ciphertext.length - 1]++;
+        for (YarOaepCipher cipher : new YarOaepCipher[]{decryptor, new YarOaepCipher(privateKey, HashMethod.SHA_1)}) {
+            try {
+                cipher.decrypt(cipher == decryptor ? ciphertext : encryptor.encrypt(message.getBytes()));
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                Assert.assertEquals("Decryption error.", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+        YarMetricsRecorder recorder = new YarMetricsRecorder();
+        recorder.register();
+        Yar.setMetrics(recorder);
+        try {
+            int keyLength = publicKey.getModulus().bitLength();
+            byte[] signature = Yar.sign(message, privateKey, HashMethod.SHA_256);
+            Assert.assertTrue(Yar.verify(message, signature, publicKey, HashMethod.SHA_256));
+            Assert.assertFalse(Yar.verify("Help the bombardier?", signature, publicKey, HashMethod.SHA_256));
+            Assert.assertFalse(Yar.verify(message.getBytes(), new byte[3], publicKey, HashMethod.SHA_256));
+            Yar.decrypt(Yar.encrypt(message, publicKey), privateKey);
+            Yar.decryptOaep(Yar.encryptOaep(message.getBytes(), publicKey, HashMethod.SHA_1), privateKey, HashMethod.SHA_1);
+            Assert.assertTrue(Yar.verifyPss(message.getBytes(), Yar.signPss(message.getBytes(), privateKey,
+                    HashMethod.SHA_512), publicKey, HashMethod.SHA_512));
+            YarKeyPairGenerator.generateKeyPair(1024);
+
+            YarOperationStatistics verify = recorder.getStatistics(YarMetrics.Operation.VERIFY, keyLength,
+                    HashMethod.SHA_256);
+            Assert.assertEquals(3, verify.getCount());
+            Assert.assertEquals(2, verify.getFailures());
+            Assert.assertTrue(verify.getMaxNanos() > 0);
+            Assert.assertTrue(verify.getMedianNanos() <= verify.getMaxNanos());
+            Assert.assertEquals(1, recorder.getStatistics(YarMetrics.Operation.SIGN, keyLength, HashMethod.SHA_256).getCount());
+            Assert.assertEquals(1, recorder.getStatistics(YarMetrics.Operation.ENCRYPT, keyLength, null).getCount());
+            Assert.assertEquals(1, recorder.getStatistics(YarMetrics.Operation.DECRYPT, keyLength, null).getCount());
+            Assert.assertEquals(1, recorder.getStatistics(YarMetrics.Operation.DECRYPT, keyLength, HashMethod.SHA_1).getCount());
+            Assert.assertEquals(1, recorder.getStatistics(YarMetrics.Operation.SIGN, keyLength, HashMethod.SHA_512).getCount());
+            Assert.assertEquals(1, recorder.getStatistics(YarMetrics.Operation.KEYGEN, 1024, null).getCount());
+            Assert.assertNull(recorder.getStatistics(YarMetrics.Operation.SIGN, keyLength, HashMethod.MD5));
+            Assert.assertEquals(11, recorder.getOperationCount());
+
+            //The statistics are published as open data.
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(YarMetricsRecorder.OBJECT_NAME);
+            Assert.assertEquals(2L, server.getAttribute(name, "FailureCount"));
+            CompositeData[] statistics = (CompositeData[]) server.getAttribute(name, "Statistics");
+            Assert.assertEquals(recorder.getStatistics().size(), statistics.length);
+            server.invoke(name, "reset", null, null);
+            Assert.assertEquals(0, recorder.getOperationCount());
+        } finally {
+            Yar.setMetrics(null);
+            recorder.unregister();
+        }
+        Assert.assertSame(YarMetrics.NONE, Yar.getMetrics());
+        Yar.sign(message, privateKey, HashMethod.SHA_256);
+        Assert.assertEquals(0, recorder.getOperationCount());
+    }
+
+    @Test
+    public void testHybridEncryption() throws Exception {
+        for (int size : new int[]{0, 1000, 64 * 1024, 200 * 1000}) {
+            byte[] data = new byte[size];
+            new Random().nextBytes(data);
+
+            ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+            Yar.encrypt(new ByteArrayInputStream(data), envelope, publicKey);
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            Yar.decrypt(new ByteArrayInputStream(envelope.toByteArray()), decrypted, privateKey);
+            Assert.assertArrayEquals(data, decrypted.toByteArray());
+
+            byte[] tampered = envelope.toByteArray();
+            tampered[tampered.length - 40]++;
+            try {
+                Yar.decrypt(new ByteArrayInputStream(tampered), new ByteArrayOutputStream(), privateKey);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+
+            byte[] truncated = Arrays.copyOf(envelope.toByteArray(), envelope.size() - 1);
+            try {
+                Yar.decrypt(new ByteArrayInputStream(truncated), new ByteArrayOutputStream(), privateKey);
+                Assert.fail();
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+        //Every content key must unwrap, whatever zero octets it contains.
+        for (int i = 0; i < 100; i++) {
+            ByteArrayOutputStream envelope = new ByteArrayOutputStream();
+            Yar.encrypt(new ByteArrayInputStream(message.getBytes()), envelope, publicKey);
+            ByteArrayOutputStream decrypted = new ByteArrayOutputStream();
+            Yar.decrypt(new ByteArrayInputStream(envelope.toByteArray()), decrypted, privateKey);
+            Assert.assertEquals(message, decrypted.toString());
+        }
+    }
 }
\ No newline at end of file